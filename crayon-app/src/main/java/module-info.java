@@ -13,6 +13,8 @@ module se.l4.crayon.app {
 	requires ch.qos.logback.core;
 	requires org.slf4j;
 	requires java.logging;
+	requires java.management;
+	requires jdk.management;
 	requires java.xml;
 
 	exports se.l4.crayon.app;
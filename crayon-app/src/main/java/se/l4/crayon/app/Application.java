@@ -14,6 +14,16 @@ public interface Application
 	 */
 	Injector getInjector();
 
+	/**
+	 * Get the report of where time was spent during the startup of the
+	 * application. The report can also be written as JSON to the file given
+	 * via the system property {@code startupReport} or the environment
+	 * variable {@code STARTUP_REPORT}.
+	 *
+	 * @return
+	 */
+	StartupReport getStartupReport();
+
 	/**
 	 * Start all of the {@link se.l4.crayon.services.ManagedService services}
 	 * in the system.
@@ -26,6 +36,16 @@ public interface Application
 	 */
 	Flux<ServiceStatus> stopServices();
 
+	/**
+	 * Gracefully stop all of the {@link se.l4.crayon.services.ManagedService
+	 * services} in the system. Services are stopped in reverse dependency
+	 * order and the call waits at most for {@code services.shutdownTimeout}.
+	 * Unless {@link Builder#withoutShutdownHook()} is used this is done
+	 * automatically when the JVM shuts down, calling it more than once has
+	 * no effect.
+	 */
+	void shutdown();
+
 	/**
 	 * Start setting up an {@link Application}.
 	 *
@@ -56,6 +76,27 @@ public interface Application
 		 */
 		Builder add(Class<? extends CrayonModule> module);
 
+		/**
+		 * Start services on demand instead of during startup. A service is
+		 * started, together with the services it depends on, the first time
+		 * it or something that depends on it is provisioned, and is running
+		 * once provisioning returns. Services can also be started via
+		 * {@link se.l4.crayon.services.ServiceManager}.
+		 *
+		 * @return
+		 */
+		Builder lazyServices();
+
+		/**
+		 * Do not install a JVM shutdown hook that stops the services. Used
+		 * when the lifecycle is managed elsewhere, such as in tests, in which
+		 * case {@link Application#shutdown()} must be called to stop the
+		 * services.
+		 *
+		 * @return
+		 */
+		Builder withoutShutdownHook();
+
 		/**
 		 * Start the application.
 		 *
@@ -0,0 +1,101 @@
+package se.l4.crayon.app;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Report of where time was spent while an {@link Application} was started.
+ * The report is divided into phases, such as creating the injector and
+ * starting services, and every phase contains entries for the modules,
+ * contributions, singletons and services that were handled during it.
+ *
+ * <p>
+ * Times include everything that happened while an entry was active, so the
+ * time of a module includes any modules it installs and the time of a
+ * singleton includes creating its dependencies.
+ */
+public interface StartupReport
+{
+	/**
+	 * Get the total time it took to start the application.
+	 *
+	 * @return
+	 */
+	Duration getTotalTime();
+
+	/**
+	 * Get the phases of the startup in the order they ran.
+	 *
+	 * @return
+	 */
+	List<Entry> getPhases();
+
+	/**
+	 * Get this report as JSON.
+	 *
+	 * @return
+	 */
+	String toJson();
+
+	enum Type
+	{
+		/** Phase of the startup. */
+		PHASE,
+
+		/** Configuration of a module. */
+		MODULE,
+
+		/** A contribution being run. */
+		CONTRIBUTION,
+
+		/** Creation of a singleton. */
+		SINGLETON,
+
+		/** Start of a service. */
+		SERVICE
+	}
+
+	/**
+	 * Something that was measured during the startup.
+	 */
+	interface Entry
+	{
+		/**
+		 * Get the type of entry.
+		 *
+		 * @return
+		 */
+		Type getType();
+
+		/**
+		 * Get the name of what was measured.
+		 *
+		 * @return
+		 */
+		String getName();
+
+		/**
+		 * Get the wall time that was spent.
+		 *
+		 * @return
+		 */
+		Duration getTime();
+
+		/**
+		 * Get the number of bytes allocated by the thread that performed
+		 * the work.
+		 *
+		 * @return
+		 *   allocated bytes, or {@code -1} if allocations could not be
+		 *   measured
+		 */
+		long getAllocatedBytes();
+
+		/**
+		 * Get entries that were measured within this entry.
+		 *
+		 * @return
+		 */
+		List<Entry> getChildren();
+	}
+}
@@ -1,11 +1,14 @@
 package se.l4.crayon.app.internal;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -18,6 +21,7 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.Stage;
+import com.google.inject.util.Modules;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,11 +33,14 @@ import ch.qos.logback.core.joran.spi.JoranException;
 import se.l4.crayon.app.Application;
 import se.l4.crayon.app.Application.Builder;
 import se.l4.crayon.app.ApplicationException;
+import se.l4.crayon.app.StartupReport;
 import se.l4.crayon.config.ConfigCollector;
 import se.l4.crayon.config.ConfigContribution;
 import se.l4.crayon.config.ConfigModule;
 import se.l4.crayon.module.CrayonModule;
+import se.l4.crayon.services.LazyServicesModule;
 import se.l4.crayon.services.ServiceStatus;
+import se.l4.crayon.services.ServicesConfig;
 import se.l4.crayon.services.ServicesModule;
 import se.l4.crayon.vibe.VibeModule;
 
@@ -45,11 +52,15 @@ public class ApplicationBuilder
 	private final String identifier;
 	private final Set<Module> modules;
 
+	private boolean lazyServices;
+	private boolean shutdownHook;
+
 	public ApplicationBuilder(String identifier)
 	{
 		this.identifier = identifier;
 
 		modules = new HashSet<>();
+		shutdownHook = true;
 	}
 
 	@Override
@@ -73,11 +84,29 @@ public class ApplicationBuilder
 		return this;
 	}
 
+	@Override
+	public Builder lazyServices()
+	{
+		lazyServices = true;
+		return this;
+	}
+
+	@Override
+	public Builder withoutShutdownHook()
+	{
+		shutdownHook = false;
+		return this;
+	}
+
 	@Override
 	public Application start()
 	{
+		StartupProfiler profiler = new StartupProfiler();
+
+		profiler.phase("logging");
 		configureLogging();
 
+		profiler.phase("configuration");
 		logger.info("[1/5] Finding configuration files");
 
 		List<Path> configFiles = new ArrayList<>();
@@ -92,6 +121,7 @@ public class ApplicationBuilder
 			configFiles.forEach(f -> logger.info("  " + f));
 		}
 
+		profiler.phase("modules");
 		logger.info("[2/5] Discovering modules");
 		modules.forEach(m -> logger.info("  Using module " + m.getClass().getName()));
 
@@ -102,6 +132,10 @@ public class ApplicationBuilder
 
 		// Make sure services are available
 		modules.add(new ServicesModule());
+		if(lazyServices)
+		{
+			modules.add(new LazyServicesModule());
+		}
 
 		// Health metrics via Vibe
 		modules.add(new VibeModule());
@@ -112,35 +146,103 @@ public class ApplicationBuilder
 			logger.info("  Using auto-discovered module " + m.getClass().getName());
 		});
 
+		profiler.phase("injector");
 		logger.info("[3/5] Initializing modules and creating injector");
 
-		// Create the injector
-		Injector injector = Guice.createInjector(stage, modules);
+		// Wrap the modules so that their configuration is profiled
+		List<Module> profiledModules = new ArrayList<>();
+		for(Module module : modules)
+		{
+			profiledModules.add(profiler.wrap(module));
+		}
+
+		// Create the injector, bindings in modules override the profiler
+		Injector injector = Guice.createInjector(
+			stage,
+			Modules.override(profiler.module()).with(profiledModules)
+		);
 
 		// Create the application and start the services
 		ApplicationImpl result = new ApplicationImpl(injector);
-		logger.info("[4/5] Starting services");
 
-		List<ServiceStatus> services = result.services.startAll()
-			.collectSortedList((a, b) -> a.getService().toString().compareTo(b.getService().toString()))
-			.block();
+		// Export metrics before services change state
+		VibeModule.exportServiceMetrics(injector);
+
+		profiler.phase("services");
+
+		ServicesConfig servicesConfig = injector.getInstance(ServicesConfig.class);
 
-		logger.info("[5/5] Startup done");
-		if(services.isEmpty())
+		// Stop services gracefully when the JVM shuts down
+		result.shutdown = new ShutdownOrchestrator(result.services, servicesConfig.getShutdownTimeout());
+		if(shutdownHook)
 		{
-			logger.info("  No services");
+			result.shutdown.installHook();
+		}
+
+		boolean lazy = lazyServices;
+		List<ServiceStatus> services;
+		if(lazy)
+		{
+			logger.info("[4/5] Services will be started on demand");
+			services = Collections.emptyList();
 		}
 		else
 		{
-			for(ServiceStatus info : services)
+			logger.info("[4/5] Starting services");
+
+			services = result.services.startAll()
+				.collectSortedList((a, b) -> a.getService().toString().compareTo(b.getService().toString()))
+				.block();
+		}
+
+		profiler.addServices(services);
+		result.startupReport = profiler.finish();
+
+		logger.info("[5/5] Startup done in " + result.startupReport.getTotalTime().toMillis() + " ms");
+		if(! lazy)
+		{
+			if(services.isEmpty())
 			{
-				logger.info(String.format("  [ %-8s ] %s", info.getState(), info.getService()));
+				logger.info("  No services");
+			}
+			else
+			{
+				for(ServiceStatus info : services)
+				{
+					logger.info(String.format("  [ %-8s ] %s", info.getState(), info.getService()));
+				}
 			}
 		}
 
+		writeStartupReport(result.startupReport);
+
 		return result;
 	}
 
+	/**
+	 * Write the startup report as JSON if a file has been requested via
+	 * the {@code startupReport} property or {@code STARTUP_REPORT}
+	 * environment variable.
+	 *
+	 * @param report
+	 */
+	private void writeStartupReport(StartupReport report)
+	{
+		Optional<String> file = PropertiesHelper.get("startupReport", "STARTUP_REPORT");
+		if(! file.isPresent()) return;
+
+		Path path = Paths.get(file.get());
+		try
+		{
+			Files.write(path, report.toJson().getBytes(StandardCharsets.UTF_8));
+			logger.info("  Startup report written to " + path);
+		}
+		catch(IOException e)
+		{
+			logger.warn("  Could not write startup report to " + path + "; " + e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Configure logging of application.
 	 */
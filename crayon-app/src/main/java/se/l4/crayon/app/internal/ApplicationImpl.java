@@ -1,5 +1,8 @@
 package se.l4.crayon.app.internal;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import com.google.inject.Injector;
 
 import org.slf4j.Logger;
@@ -7,6 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import reactor.core.publisher.Flux;
 import se.l4.crayon.app.Application;
+import se.l4.crayon.app.StartupReport;
 import se.l4.crayon.services.ServiceManager;
 import se.l4.crayon.services.ServiceStatus;
 
@@ -15,9 +19,17 @@ public class ApplicationImpl
 {
 	private static final Logger logger = LoggerFactory.getLogger(Application.class);
 
+	/**
+	 * Padded labels for every state, formatted once instead of per event.
+	 */
+	private static final Map<ServiceStatus.State, String> LABELS = createLabels();
+
 	private final Injector injector;
 	final ServiceManager services;
 
+	StartupReport startupReport;
+	ShutdownOrchestrator shutdown;
+
 	public ApplicationImpl(Injector injector)
 	{
 		this.injector = injector;
@@ -25,7 +37,18 @@ public class ApplicationImpl
 
 		// Subscribe to updates to service statuses
 		services.serviceStatus()
-			.subscribe(status -> logger.info(String.format("[ %-8s ] %s", status.getState(), status.getService())));
+			.subscribe(status -> logger.info("{} {}", LABELS.get(status.getState()), status.getService()));
+	}
+
+	private static Map<ServiceStatus.State, String> createLabels()
+	{
+		Map<ServiceStatus.State, String> result = new EnumMap<>(ServiceStatus.State.class);
+		for(ServiceStatus.State state : ServiceStatus.State.values())
+		{
+			result.put(state, String.format("[ %-8s ]", state));
+		}
+
+		return result;
 	}
 
 	@Override
@@ -34,6 +57,18 @@ public class ApplicationImpl
 		return injector;
 	}
 
+	@Override
+	public StartupReport getStartupReport()
+	{
+		return startupReport;
+	}
+
+	@Override
+	public void shutdown()
+	{
+		shutdown.shutdown();
+	}
+
 	@Override
 	public Flux<ServiceStatus> startServices()
 	{
@@ -0,0 +1,70 @@
+package se.l4.crayon.app.internal;
+
+import java.time.Duration;
+import java.util.List;
+
+import se.l4.crayon.app.StartupReport;
+
+/**
+ * Implementation of {@link StartupReport.Entry}.
+ */
+public class EntryImpl
+	implements StartupReport.Entry
+{
+	private final StartupReport.Type type;
+	private final String name;
+	private final Duration time;
+	private final long allocatedBytes;
+	private final List<StartupReport.Entry> children;
+
+	public EntryImpl(
+		StartupReport.Type type,
+		String name,
+		Duration time,
+		long allocatedBytes,
+		List<StartupReport.Entry> children
+	)
+	{
+		this.type = type;
+		this.name = name;
+		this.time = time;
+		this.allocatedBytes = allocatedBytes;
+		this.children = children;
+	}
+
+	@Override
+	public StartupReport.Type getType()
+	{
+		return type;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public Duration getTime()
+	{
+		return time;
+	}
+
+	@Override
+	public long getAllocatedBytes()
+	{
+		return allocatedBytes;
+	}
+
+	@Override
+	public List<StartupReport.Entry> getChildren()
+	{
+		return children;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Entry{type=" + type + ", name=" + name + ", time=" + time + "}";
+	}
+}
@@ -0,0 +1,149 @@
+package se.l4.crayon.app.internal;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Mono;
+import se.l4.crayon.app.Application;
+import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.ServiceManager;
+import se.l4.crayon.services.ServiceStatus;
+
+/**
+ * Graceful shutdown of all services. Services are stopped in reverse
+ * dependency order, services that do not depend on each other are stopped
+ * in parallel. Services that are being started are stopped once their start
+ * is done. Every service has its own deadline enforced by the
+ * {@link ServiceManager} and the entire shutdown is bounded by a global
+ * deadline. A report of how long every service took to stop is logged when
+ * the shutdown is done, after which the {@link ServiceManager} is disposed.
+ */
+public class ShutdownOrchestrator
+{
+	private static final Logger logger = LoggerFactory.getLogger(Application.class);
+
+	private final ServiceManager services;
+	private final Duration timeout;
+
+	private final AtomicBoolean shutdown;
+	private final Thread hook;
+
+	public ShutdownOrchestrator(ServiceManager services, Duration timeout)
+	{
+		this.services = services;
+		this.timeout = timeout;
+
+		shutdown = new AtomicBoolean();
+		hook = new Thread(this::shutdown, "crayon-shutdown");
+	}
+
+	/**
+	 * Install a JVM shutdown hook that will shutdown the services.
+	 */
+	public void installHook()
+	{
+		Runtime.getRuntime().addShutdownHook(hook);
+	}
+
+	/**
+	 * Stop all services, waiting at most for the global deadline. Only the
+	 * first call performs the shutdown.
+	 */
+	public void shutdown()
+	{
+		if(! shutdown.compareAndSet(false, true))
+		{
+			return;
+		}
+
+		removeHook();
+
+		logger.info("Shutting down, waiting at most " + timeout.toMillis() + " ms for services to stop");
+		long started = System.nanoTime();
+
+		services.services()
+			.filter(status -> status.getState() != ServiceStatus.State.STOPPED)
+			.flatMap(status -> stop(status)
+				.onErrorResume(t -> {
+					logger.warn("Could not stop " + status.getService() + "; " + t.getMessage(), t);
+					return Mono.empty();
+				})
+			)
+			.then()
+			.timeout(timeout)
+			.onErrorResume(TimeoutException.class, e -> {
+				logger.warn("Services did not stop within " + timeout.toMillis() + " ms");
+				return Mono.empty();
+			})
+			.block();
+
+		report(System.nanoTime() - started);
+
+		services.dispose();
+	}
+
+	/**
+	 * Stop the service of the given status. A service that is being started
+	 * can not be stopped, so the start in progress is waited for first.
+	 */
+	private Mono<ServiceStatus> stop(ServiceStatus status)
+	{
+		Class<? extends ManagedService> type = status.getService().getClass();
+		Mono<ServiceStatus> stop = Mono.defer(() -> services.stop(type));
+		if(status.getState() != ServiceStatus.State.STARTING)
+		{
+			return stop;
+		}
+
+		return services.start(type)
+			.onErrorResume(t -> Mono.empty())
+			.then(stop);
+	}
+
+	private void removeHook()
+	{
+		if(Thread.currentThread() == hook)
+		{
+			return;
+		}
+
+		try
+		{
+			Runtime.getRuntime().removeShutdownHook(hook);
+		}
+		catch(IllegalStateException e)
+		{
+			// JVM is already shutting down
+		}
+	}
+
+	/**
+	 * Log how long it took to stop every service, slowest first.
+	 */
+	private void report(long total)
+	{
+		List<ServiceStatus> statuses = services.services()
+			.collectList()
+			.block();
+
+		statuses.sort(Comparator.comparing(ServiceStatus::getDuration).reversed());
+
+		logger.info("Shutdown done in " + Duration.ofNanos(total).toMillis() + " ms");
+		for(ServiceStatus status : statuses)
+		{
+			boolean stopped = status.getPreviousState().orElse(null) == ServiceStatus.State.STOPPING;
+			logger.info(String.format(
+				"  [ %-8s ] %s%s",
+				status.getState(),
+				status.getService(),
+				stopped ? " (" + status.getDuration().toMillis() + " ms)" : ""
+			));
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package se.l4.crayon.app.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.google.inject.Binder;
+import com.google.inject.Binding;
+import com.google.inject.Module;
+import com.google.inject.Scopes;
+import com.google.inject.matcher.AbstractMatcher;
+import com.google.inject.spi.InstanceBinding;
+import com.google.inject.spi.ProvisionListener;
+
+import se.l4.crayon.app.StartupReport;
+import se.l4.crayon.contributions.ContributionInterceptor;
+import se.l4.crayon.services.ServiceStatus;
+
+/**
+ * Profiler used to build a {@link StartupReport}. Phases are started via
+ * {@link #phase(String)} and everything measured is added to the current
+ * phase.
+ */
+public class StartupProfiler
+	implements ContributionInterceptor, ProvisionListener
+{
+	private final ThreadMXBean threads;
+	private final boolean allocationsSupported;
+
+	private final long started;
+	private final List<StartupReport.Entry> phases;
+
+	private volatile Measurement currentPhase;
+	private volatile boolean finished;
+
+	public StartupProfiler()
+	{
+		threads = ManagementFactory.getThreadMXBean();
+		allocationsSupported = isAllocationSupported(threads);
+
+		started = System.nanoTime();
+		phases = new ArrayList<>();
+	}
+
+	private static boolean isAllocationSupported(ThreadMXBean threads)
+	{
+		if(! (threads instanceof com.sun.management.ThreadMXBean))
+		{
+			return false;
+		}
+
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+		try
+		{
+			return bean.isThreadAllocatedMemorySupported()
+				&& bean.isThreadAllocatedMemoryEnabled();
+		}
+		catch(UnsupportedOperationException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Start a new phase, ending the current phase.
+	 *
+	 * @param name
+	 */
+	public void phase(String name)
+	{
+		endPhase();
+
+		currentPhase = new Measurement(StartupReport.Type.PHASE, name);
+	}
+
+	/**
+	 * Finish profiling and create the report.
+	 *
+	 * @return
+	 */
+	public StartupReport finish()
+	{
+		endPhase();
+		finished = true;
+
+		return new StartupReportImpl(
+			Duration.ofNanos(System.nanoTime() - started),
+			Collections.unmodifiableList(new ArrayList<>(phases))
+		);
+	}
+
+	private void endPhase()
+	{
+		Measurement phase = currentPhase;
+		if(phase != null)
+		{
+			phases.add(phase.end());
+			currentPhase = null;
+		}
+	}
+
+	/**
+	 * Measure the given supplier and add it to the current phase.
+	 *
+	 * @param type
+	 * @param name
+	 * @param supplier
+	 * @return
+	 */
+	public <T> T measure(StartupReport.Type type, String name, Supplier<T> supplier)
+	{
+		Measurement phase = currentPhase;
+		if(finished || phase == null)
+		{
+			return supplier.get();
+		}
+
+		Measurement measurement = new Measurement(type, name);
+		try
+		{
+			return supplier.get();
+		}
+		finally
+		{
+			phase.add(measurement.end());
+		}
+	}
+
+	/**
+	 * Measure the given runnable and add it to the current phase.
+	 *
+	 * @param type
+	 * @param name
+	 * @param runnable
+	 */
+	public void measure(StartupReport.Type type, String name, Runnable runnable)
+	{
+		measure(type, name, () -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Wrap the given module so that the time it takes to configure it is
+	 * measured.
+	 *
+	 * @param module
+	 * @return
+	 */
+	public Module wrap(Module module)
+	{
+		return binder -> measure(
+			StartupReport.Type.MODULE,
+			module.getClass().getName(),
+			() -> binder.install(module)
+		);
+	}
+
+	/**
+	 * Get a module that activates profiling of contributions and singletons.
+	 * The interceptor is bound so that modules can override it via
+	 * {@link com.google.inject.util.Modules#override(Module...)} and the
+	 * listener only matches singletons created by the injector, so it runs
+	 * at most once per binding.
+	 *
+	 * @return
+	 */
+	public Module module()
+	{
+		return new Module()
+		{
+			@Override
+			public void configure(Binder binder)
+			{
+				binder.bind(ContributionInterceptor.class).toInstance(StartupProfiler.this);
+				binder.bindListener(new SingletonMatcher(), StartupProfiler.this);
+			}
+		};
+	}
+
+	/**
+	 * Add the start of the given services to the current phase.
+	 *
+	 * @param services
+	 */
+	public void addServices(List<ServiceStatus> services)
+	{
+		Measurement phase = currentPhase;
+		if(phase == null) return;
+
+		for(ServiceStatus status : services)
+		{
+			if(status.getPreviousState().orElse(null) != ServiceStatus.State.STARTING)
+			{
+				continue;
+			}
+
+			phase.add(new EntryImpl(
+				StartupReport.Type.SERVICE,
+				status.getService().toString(),
+				status.getDuration(),
+				-1,
+				Collections.emptyList()
+			));
+		}
+	}
+
+	@Override
+	public void intercept(
+		Class<? extends Annotation> annotation,
+		Method method,
+		Runnable invocation
+	)
+	{
+		measure(
+			StartupReport.Type.CONTRIBUTION,
+			"@" + annotation.getSimpleName() + " " + method.getDeclaringClass().getName() + "." + method.getName(),
+			invocation
+		);
+	}
+
+	@Override
+	public <T> void onProvision(ProvisionInvocation<T> provision)
+	{
+		if(finished) return;
+
+		measure(
+			StartupReport.Type.SINGLETON,
+			provision.getBinding().getKey().toString(),
+			provision::provision
+		);
+	}
+
+	private long allocatedBytes()
+	{
+		if(! allocationsSupported)
+		{
+			return -1;
+		}
+
+		return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+			Thread.currentThread().getId()
+		);
+	}
+
+	/**
+	 * Matcher for singletons that are created by the injector.
+	 */
+	private static class SingletonMatcher
+		extends AbstractMatcher<Binding<?>>
+	{
+		@Override
+		public boolean matches(Binding<?> binding)
+		{
+			return ! (binding instanceof InstanceBinding) && Scopes.isSingleton(binding);
+		}
+	}
+
+	/**
+	 * Measurement in progress.
+	 */
+	private class Measurement
+	{
+		private final StartupReport.Type type;
+		private final String name;
+
+		private final long started;
+		private final long allocated;
+
+		private final List<StartupReport.Entry> children;
+
+		public Measurement(StartupReport.Type type, String name)
+		{
+			this.type = type;
+			this.name = name;
+
+			children = new ArrayList<>();
+
+			allocated = allocatedBytes();
+			started = System.nanoTime();
+		}
+
+		public synchronized void add(StartupReport.Entry entry)
+		{
+			children.add(entry);
+		}
+
+		public synchronized StartupReport.Entry end()
+		{
+			Duration time = Duration.ofNanos(System.nanoTime() - started);
+			long allocatedNow = allocatedBytes();
+
+			return new EntryImpl(
+				type,
+				name,
+				time,
+				allocated < 0 || allocatedNow < 0 ? -1 : allocatedNow - allocated,
+				Collections.unmodifiableList(new ArrayList<>(children))
+			);
+		}
+	}
+}
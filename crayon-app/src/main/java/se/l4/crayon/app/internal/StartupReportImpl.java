@@ -0,0 +1,126 @@
+package se.l4.crayon.app.internal;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+import se.l4.crayon.app.StartupReport;
+
+/**
+ * Implementation of {@link StartupReport}.
+ */
+public class StartupReportImpl
+	implements StartupReport
+{
+	private final Duration totalTime;
+	private final List<Entry> phases;
+
+	public StartupReportImpl(Duration totalTime, List<Entry> phases)
+	{
+		this.totalTime = totalTime;
+		this.phases = phases;
+	}
+
+	@Override
+	public Duration getTotalTime()
+	{
+		return totalTime;
+	}
+
+	@Override
+	public List<Entry> getPhases()
+	{
+		return phases;
+	}
+
+	@Override
+	public String toJson()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append("{\"totalTimeMs\":")
+			.append(toMillis(totalTime))
+			.append(",\"phases\":");
+
+		appendEntries(builder, phases);
+
+		return builder.append('}').toString();
+	}
+
+	private static void appendEntries(StringBuilder builder, List<Entry> entries)
+	{
+		builder.append('[');
+		for(int i=0, n=entries.size(); i<n; i++)
+		{
+			if(i > 0) builder.append(',');
+
+			Entry entry = entries.get(i);
+			builder.append("{\"type\":\"")
+				.append(entry.getType().name().toLowerCase())
+				.append("\",\"name\":");
+
+			appendString(builder, entry.getName());
+
+			builder.append(",\"timeMs\":")
+				.append(toMillis(entry.getTime()))
+				.append(",\"allocatedBytes\":")
+				.append(entry.getAllocatedBytes());
+
+			if(! entry.getChildren().isEmpty())
+			{
+				builder.append(",\"children\":");
+				appendEntries(builder, entry.getChildren());
+			}
+
+			builder.append('}');
+		}
+		builder.append(']');
+	}
+
+	private static String toMillis(Duration duration)
+	{
+		return String.format(Locale.ROOT, "%.3f", duration.toNanos() / 1_000_000.0);
+	}
+
+	private static void appendString(StringBuilder builder, String value)
+	{
+		builder.append('"');
+		for(int i=0, n=value.length(); i<n; i++)
+		{
+			char c = value.charAt(i);
+			switch(c)
+			{
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if(c < 0x20)
+					{
+						builder.append(String.format("\\u%04x", (int) c));
+					}
+					else
+					{
+						builder.append(c);
+					}
+			}
+		}
+		builder.append('"');
+	}
+
+	@Override
+	public String toString()
+	{
+		return "StartupReport{totalTime=" + totalTime + ", phases=" + phases + "}";
+	}
+}
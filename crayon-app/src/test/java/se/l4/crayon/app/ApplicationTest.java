@@ -3,11 +3,18 @@ package se.l4.crayon.app;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import org.junit.jupiter.api.Test;
 
 import reactor.core.publisher.Mono;
+import se.l4.crayon.contributions.ContributionInterceptor;
 import se.l4.crayon.module.CrayonModule;
 import se.l4.crayon.services.ManagedService;
 import se.l4.crayon.services.RunningService;
@@ -22,6 +29,7 @@ public class ApplicationTest
 	public void testStartupWithService()
 	{
 		Application app = Application.create("test")
+			.withoutShutdownHook()
 			.add(new TestModule())
 			.start();
 
@@ -30,6 +38,96 @@ public class ApplicationTest
 		assertThat(info.getState(), is(ServiceStatus.State.RUNNING));
 	}
 
+	@Test
+	public void testShutdown()
+	{
+		Application app = Application.create("test")
+			.withoutShutdownHook()
+			.add(new TestModule())
+			.start();
+
+		app.shutdown();
+
+		ServiceManager manager = app.getInjector().getInstance(ServiceManager.class);
+		assertThat(manager.get(TestService.class).block().getState(), is(ServiceStatus.State.STOPPED));
+	}
+
+	@Test
+	public void testStartupReport()
+	{
+		Application app = Application.create("test")
+			.withoutShutdownHook()
+			.add(new TestModule())
+			.start();
+
+		StartupReport report = app.getStartupReport();
+		List<String> phases = report.getPhases().stream()
+			.map(StartupReport.Entry::getName)
+			.collect(Collectors.toList());
+
+		assertThat(phases, is(List.of("logging", "configuration", "modules", "injector", "services")));
+		assertThat(report.toJson().startsWith("{\"totalTimeMs\":"), is(true));
+	}
+
+	@Test
+	public void testLazyServices()
+	{
+		Application app = Application.create("test")
+			.withoutShutdownHook()
+			.add(new TestModule())
+			.lazyServices()
+			.start();
+
+		ServiceManager manager = app.getInjector().getInstance(ServiceManager.class);
+		assertThat(manager.get(TestService.class).block().getState(), is(ServiceStatus.State.STOPPED));
+
+		// Provisioning something that depends on the service starts it
+		app.getInjector().getInstance(TestServiceUser.class);
+		assertThat(manager.get(TestService.class).block().getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	@Test
+	public void testOwnContributionInterceptor()
+	{
+		AtomicInteger intercepted = new AtomicInteger();
+		Application app = Application.create("test")
+			.withoutShutdownHook()
+			.add(new TestModule())
+			.add(new CrayonModule()
+			{
+				@Override
+				protected void configure()
+				{
+					bind(ContributionInterceptor.class).toInstance((annotation, method, invocation) -> {
+						intercepted.incrementAndGet();
+						invocation.run();
+					});
+				}
+			})
+			.start();
+
+		assertThat(intercepted.get() > 0, is(true));
+		app.shutdown();
+	}
+
+	@Test
+	public void testShutdownWhileStarting()
+	{
+		Application app = Application.create("test")
+			.withoutShutdownHook()
+			.add(new SlowModule())
+			.lazyServices()
+			.start();
+
+		ServiceManager manager = app.getInjector().getInstance(ServiceManager.class);
+		manager.start(SlowService.class).subscribe();
+		assertThat(manager.get(SlowService.class).block().getState(), is(ServiceStatus.State.STARTING));
+
+		app.shutdown();
+
+		assertThat(manager.get(SlowService.class).block().getState(), is(ServiceStatus.State.STOPPED));
+	}
+
 	public static class TestModule
 		extends CrayonModule
 	{
@@ -40,6 +138,35 @@ public class ApplicationTest
 		}
 	}
 
+	public static class SlowModule
+		extends CrayonModule
+	{
+		@ServiceContribution
+		public void contributeService(ServiceCollector collector, SlowService service)
+		{
+			collector.add(service);
+		}
+	}
+
+	@Singleton
+	public static class SlowService
+		implements ManagedService
+	{
+		public Mono<RunningService> start()
+		{
+			return Mono.delay(Duration.ofMillis(200))
+				.thenReturn(RunningService.stoppable(() -> {}));
+		}
+	}
+
+	public static class TestServiceUser
+	{
+		@Inject
+		public TestServiceUser(TestService service)
+		{
+		}
+	}
+
 	@Singleton
 	public static class TestService
 		implements ManagedService
@@ -0,0 +1,115 @@
+package se.l4.crayon.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the CPU cost of compressing responses at different levels.
+ * Every invocation compresses one megabyte written in chunks the size of
+ * an Undertow buffer, the same way the encoding handler of the HTTP server
+ * streams a response, so the reported time is the cost per megabyte.
+ *
+ * <ul>
+ *   <li>{@code json} - generated JSON with repeated keys</li>
+ *   <li>{@code random} - random bytes that do not compress</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark
+{
+	private static final int SIZE = 1024 * 1024;
+	private static final int CHUNK = 16 * 1024;
+
+	@Param({ "1", "3", "6", "9" })
+	private int level;
+
+	@Param({ "json", "random" })
+	private String content;
+
+	private byte[] data;
+	private byte[] output;
+	private Deflater deflater;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42);
+		data = new byte[SIZE];
+
+		if("random".equals(content))
+		{
+			random.nextBytes(data);
+		}
+		else
+		{
+			StringBuilder builder = new StringBuilder(SIZE + 256);
+			builder.append('[');
+			for(int i=0; builder.length() < SIZE; i++)
+			{
+				builder.append("{\"id\":").append(i)
+					.append(",\"name\":\"item-").append(random.nextInt(10000))
+					.append("\",\"price\":").append(random.nextInt(100000) / 100.0)
+					.append(",\"tags\":[\"a").append(random.nextInt(50))
+					.append("\",\"b").append(random.nextInt(50))
+					.append("\"],\"active\":").append(random.nextBoolean())
+					.append("},");
+			}
+
+			byte[] json = builder.toString().getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(json, 0, data, 0, SIZE);
+		}
+
+		output = new byte[CHUNK];
+		deflater = new Deflater(level, true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		deflater.end();
+	}
+
+	@Benchmark
+	public long compress()
+	{
+		deflater.reset();
+
+		for(int offset=0; offset<SIZE; offset+=CHUNK)
+		{
+			deflater.setInput(data, offset, Math.min(CHUNK, SIZE - offset));
+			while(! deflater.needsInput())
+			{
+				deflater.deflate(output, 0, output.length, Deflater.NO_FLUSH);
+			}
+		}
+
+		deflater.finish();
+		while(! deflater.finished())
+		{
+			deflater.deflate(output);
+		}
+
+		return deflater.getBytesWritten();
+	}
+}
@@ -0,0 +1,96 @@
+package se.l4.crayon.benchmarks;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.l4.crayon.contributions.DependencyResolver;
+
+/**
+ * Benchmark of {@link DependencyResolver} with large graphs. Measures building
+ * the graph and resolving the order.
+ *
+ * <ul>
+ *   <li>{@code chain} - every node depends on the previous node</li>
+ *   <li>{@code layered} - every node depends on up to four random earlier nodes</li>
+ *   <li>{@code wide} - every node depends on a single root node</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyResolverBenchmark
+{
+	@Param({ "10000", "50000" })
+	private int size;
+
+	@Param({ "chain", "layered", "wide" })
+	private String shape;
+
+	private int[][] dependencies;
+
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42);
+		dependencies = new int[size][];
+
+		for(int i=0; i<size; i++)
+		{
+			if(i == 0)
+			{
+				dependencies[i] = new int[0];
+				continue;
+			}
+
+			switch(shape)
+			{
+				case "chain":
+					dependencies[i] = new int[] { i - 1 };
+					break;
+				case "wide":
+					dependencies[i] = new int[] { 0 };
+					break;
+				default:
+					int count = Math.min(i, 1 + random.nextInt(4));
+					dependencies[i] = new int[count];
+					for(int j=0; j<count; j++)
+					{
+						dependencies[i][j] = random.nextInt(i);
+					}
+			}
+		}
+	}
+
+	@Benchmark
+	public Set<Integer> resolve()
+	{
+		DependencyResolver<Integer> resolver = new DependencyResolver<>();
+		for(int i=0; i<size; i++)
+		{
+			resolver.add(i);
+
+			for(int dep : dependencies[i])
+			{
+				resolver.addDependency(i, dep);
+			}
+		}
+
+		return resolver.getOrder();
+	}
+}
@@ -0,0 +1,97 @@
+package se.l4.crayon.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.l4.crayon.contributions.internal.methods.MethodDef;
+import se.l4.crayon.contributions.internal.methods.MethodResolver;
+
+/**
+ * Benchmark of resolving the order of contributions in
+ * {@link MethodResolver}. Every tenth contribution is marked as {@code first}
+ * and every tenth as {@code last}, the rest have no explicit order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MethodResolverBenchmark
+{
+	@Param({ "100", "1000", "10000" })
+	private int contributors;
+
+	private List<MethodDef> defs;
+
+	@Setup
+	public void setup()
+		throws NoSuchMethodException
+	{
+		Method method = Contributor.class.getMethod("contribute");
+
+		defs = new ArrayList<>(contributors);
+		for(int i=0; i<contributors; i++)
+		{
+			List<String> order;
+			switch(i % 10)
+			{
+				case 0:
+					order = Collections.singletonList("first");
+					break;
+				case 1:
+					order = Collections.singletonList("last");
+					break;
+				default:
+					order = Collections.emptyList();
+			}
+
+			defs.add(new MethodDef(new Contributor("c" + i), method, order));
+		}
+	}
+
+	@Benchmark
+	public Set<MethodDef> resolve()
+	{
+		MethodResolver resolver = new MethodResolver(
+			def -> ((Contributor) def.getObject()).name
+		);
+
+		for(MethodDef def : defs)
+		{
+			resolver.addMethod(def);
+		}
+
+		return resolver.getOrder();
+	}
+
+	public static class Contributor
+	{
+		private final String name;
+
+		public Contributor(String name)
+		{
+			this.name = name;
+		}
+
+		public void contribute()
+		{
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package se.l4.crayon.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.name.Names;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.l4.crayon.http.servlet.WebScopes;
+
+/**
+ * Benchmark of request scoped lookups, comparing {@link WebScopes#newRequestScope()}
+ * with the earlier scope that stored objects as request attributes named
+ * after their key while holding a lock on the request. Every invocation is
+ * a new request that looks up every scoped binding {@code lookups} times.
+ */
+@State(org.openjdk.jmh.annotations.Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestScopeBenchmark
+{
+	private static final ThreadLocal<HttpServletRequest> LEGACY_REQUEST = new ThreadLocal<>();
+
+	private static final Scope LEGACY = new Scope()
+	{
+		@Override
+		public <T> Provider<T> scope(Key<T> key, Provider<T> p)
+		{
+			return () -> {
+				HttpServletRequest req = LEGACY_REQUEST.get();
+				String localKey = "crayon." + key.toString();
+
+				synchronized(req)
+				{
+					Object o = req.getAttribute(localKey);
+					if(o == null)
+					{
+						o = p.get();
+						req.setAttribute(localKey, o);
+					}
+
+					@SuppressWarnings("unchecked")
+					T result = (T) o;
+					return result;
+				}
+			};
+		}
+	};
+
+	@Param({ "5", "25" })
+	private int bindings;
+
+	@Param({ "1", "10" })
+	private int lookups;
+
+	private Provider<?>[] legacy;
+	private Provider<?>[] slots;
+
+	private HttpServletRequest delegate;
+	private HttpServletResponse response;
+
+	@Setup
+	public void setup()
+	{
+		legacy = new Provider<?>[bindings];
+		slots = new Provider<?>[bindings];
+
+		Scope scope = WebScopes.newRequestScope();
+
+		for(int i=0; i<bindings; i++)
+		{
+			Key<Object> key = Key.get(Object.class, Names.named("binding" + i));
+			Provider<Object> provider = Object::new;
+
+			legacy[i] = LEGACY.scope(key, provider);
+			slots[i] = scope.scope(key, provider);
+		}
+
+		delegate = (HttpServletRequest) Proxy.newProxyInstance(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletRequest.class },
+			(proxy, method, args) -> {
+				throw new UnsupportedOperationException();
+			}
+		);
+
+		response = (HttpServletResponse) Proxy.newProxyInstance(
+			getClass().getClassLoader(),
+			new Class<?>[] { HttpServletResponse.class },
+			(proxy, method, args) -> {
+				throw new UnsupportedOperationException();
+			}
+		);
+	}
+
+	@Benchmark
+	public int legacy()
+	{
+		LEGACY_REQUEST.set(new Request(delegate));
+		try
+		{
+			return lookup(legacy);
+		}
+		finally
+		{
+			LEGACY_REQUEST.remove();
+		}
+	}
+
+	@Benchmark
+	public int slots()
+	{
+		WebScopes.init(new Request(delegate), response);
+		try
+		{
+			return lookup(slots);
+		}
+		finally
+		{
+			WebScopes.clear();
+		}
+	}
+
+	private int lookup(Provider<?>[] providers)
+	{
+		int result = 0;
+		for(int i=0; i<lookups; i++)
+		{
+			for(Provider<?> provider : providers)
+			{
+				result += System.identityHashCode(provider.get());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Request that keeps attributes in a map, like most containers.
+	 */
+	private static class Request
+		extends HttpServletRequestWrapper
+	{
+		private final Map<String, Object> attributes;
+
+		public Request(HttpServletRequest request)
+		{
+			super(request);
+
+			attributes = new HashMap<>();
+		}
+
+		@Override
+		public Object getAttribute(String name)
+		{
+			return attributes.get(name);
+		}
+
+		@Override
+		public void setAttribute(String name, Object o)
+		{
+			attributes.put(name, o);
+		}
+	}
+}
@@ -2,5 +2,10 @@ module se.l4.crayon.contributions {
 	requires transitive jakarta.inject;
 	requires transitive com.google.guice;
 
+	requires static java.compiler;
+
 	exports se.l4.crayon.contributions;
+
+	provides javax.annotation.processing.Processor
+		with se.l4.crayon.contributions.internal.index.ContributionIndexProcessor;
 }
@@ -0,0 +1,37 @@
+package se.l4.crayon.contributions;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+
+/**
+ * Interceptor that is invoked around every contribution that is run. Binding
+ * an implementation of this interface activates it for all
+ * {@link Contributions}, which can be used for things such as profiling.
+ *
+ * <pre>
+ * bind(ContributionInterceptor.class).toInstance((annotation, method, invocation) -&gt; {
+ *   long start = System.nanoTime();
+ *   invocation.run();
+ *   log(method, System.nanoTime() - start);
+ * });
+ * </pre>
+ */
+public interface ContributionInterceptor
+{
+	/**
+	 * Intercept a contribution. Implementations must call
+	 * {@link Runnable#run()} on {@code invocation} to run the contribution.
+	 *
+	 * @param annotation
+	 *   the annotation the contribution is being run for
+	 * @param method
+	 *   the method of the contribution
+	 * @param invocation
+	 *   runnable that invokes the contribution
+	 */
+	void intercept(
+		Class<? extends Annotation> annotation,
+		Method method,
+		Runnable invocation
+	);
+}
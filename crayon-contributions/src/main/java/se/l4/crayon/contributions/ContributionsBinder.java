@@ -4,7 +4,9 @@ import java.lang.annotation.Annotation;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.inject.Binder;
@@ -19,6 +21,7 @@ import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
+import se.l4.crayon.contributions.internal.ContributionExecutors;
 import se.l4.crayon.contributions.internal.ContributionsManager;
 
 /**
@@ -75,6 +78,46 @@ public abstract class ContributionsBinder
 	 */
 	public abstract void bindContributions(Class<? extends Annotation> annotation);
 
+	/**
+	 * Bind an instance of {@link Contributions} that runs contributions that
+	 * do not depend on each other in parallel. Contributions are grouped into
+	 * levels based on their {@link Order ordering} and every level is run on
+	 * the given executor, waiting for all contributions of a level to complete
+	 * before running the next level.
+	 *
+	 * <p>
+	 * If contributions fail the failure of the first contribution in the
+	 * resolved order is thrown, with other failures from the same level added
+	 * as suppressed exceptions. Levels after a failure are not run.
+	 *
+	 * <p>
+	 * Binders that do not support parallel contributions bind contributions
+	 * that run one after another.
+	 *
+	 * @param annotation
+	 * @param executor
+	 */
+	public void bindParallelContributions(
+		Class<? extends Annotation> annotation,
+		Executor executor
+	)
+	{
+		bindContributions(annotation);
+	}
+
+	/**
+	 * Bind an instance of {@link Contributions} that runs contributions that
+	 * do not depend on each other in parallel using a default executor backed
+	 * by a cached pool of daemon threads.
+	 *
+	 * @param annotation
+	 * @see #bindParallelContributions(Class, Executor)
+	 */
+	public void bindParallelContributions(Class<? extends Annotation> annotation)
+	{
+		bindParallelContributions(annotation, ContributionExecutors.defaultExecutor());
+	}
+
 	private static class RealBinder
 		extends ContributionsBinder
 		implements Module, Provider<Set<Object>>
@@ -154,6 +197,33 @@ public abstract class ContributionsBinder
 				}).in(Scopes.SINGLETON);
 		}
 
+		@Override
+		public void bindParallelContributions(
+			Class<? extends Annotation> annotation,
+			Executor executor
+		)
+		{
+			Objects.requireNonNull(executor, "executor can not be null");
+
+			binder.bind(Contributions.class).annotatedWith(annotation)
+				.toProvider(new Provider<Contributions>()
+				{
+					private ContributionsManager crayon;
+
+					@Inject
+					private void setup(ContributionsManager crayon)
+					{
+						this.crayon = crayon;
+					}
+
+					@Override
+					public Contributions get()
+					{
+						return crayon.createParallelContributions(annotation, executor);
+					}
+				}).in(Scopes.SINGLETON);
+		}
+
 		@Override
 		public int hashCode()
 		{
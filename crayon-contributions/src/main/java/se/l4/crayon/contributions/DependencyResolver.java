@@ -1,8 +1,14 @@
 package se.l4.crayon.contributions;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -19,6 +25,13 @@ import java.util.Set;
  *
  * resolver.getOrder(); // retrieve ordered set
  * </pre>
+ *
+ * <p>
+ * Resolving runs in linear time over the number of objects and dependencies.
+ * The order is stable, objects are visited in the order they were first added
+ * and dependencies in the order they were defined. If the dependencies
+ * contain a cycle a {@link ContributionException} describing the full cycle
+ * is thrown.
  */
 public class DependencyResolver<T>
 {
@@ -26,7 +39,7 @@ public class DependencyResolver<T>
 
 	public DependencyResolver()
 	{
-		nodes = new HashMap<T, Node>();
+		nodes = new LinkedHashMap<T, Node>();
 	}
 
 	/**
@@ -42,7 +55,7 @@ public class DependencyResolver<T>
 		Node fromDep = getNode(from);
 		Node toDep = getNode(on);
 
-		if(toDep.to.contains(fromDep))
+		if(fromDep == toDep || toDep.to.contains(fromDep))
 		{
 			throw new ContributionException("Cyclic dependency between "
 				+ from + " and " + on);
@@ -65,18 +78,58 @@ public class DependencyResolver<T>
 	/**
 	 * Retrieve a set which contains all dependencies in their logical order.
 	 *
-	 * @param topLevelDeps
-	 * 		dependencies to start with
 	 * @return
 	 * 		ordered set with dependencies
+	 * @throws ContributionException
+	 *   if the dependencies contain a cycle
 	 */
 	public Set<T> getOrder()
 	{
 		Set<T> result = new LinkedHashSet<T>();
+		Set<Node> visiting = new HashSet<Node>();
 
 		for(Node n : nodes.values())
 		{
-			add(n, result);
+			add(n, result, visiting);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Retrieve the objects grouped into levels. Every object in a level only
+	 * depends on objects in earlier levels, so objects within the same level
+	 * are independent of each other.
+	 *
+	 * @return
+	 *   list with one ordered set per level
+	 * @throws ContributionException
+	 *   if the dependencies contain a cycle
+	 */
+	public List<Set<T>> getLevels()
+	{
+		List<Set<T>> result = new ArrayList<Set<T>>();
+		Map<Node, Integer> levels = new HashMap<Node, Integer>();
+
+		for(T object : getOrder())
+		{
+			Node node = nodes.get(object);
+
+			// Dependencies are always ordered before the node
+			int level = 0;
+			for(Node dep : node.to)
+			{
+				level = Math.max(level, levels.get(dep) + 1);
+			}
+
+			levels.put(node, level);
+
+			if(level == result.size())
+			{
+				result.add(new LinkedHashSet<T>());
+			}
+
+			result.get(level).add(object);
 		}
 
 		return result;
@@ -88,30 +141,87 @@ public class DependencyResolver<T>
 	 *
 	 * @param object
 	 * @return
+	 * @throws ContributionException
+	 *   if the dependencies contain a cycle
 	 */
 	public Set<T> getDependencies(T object)
 	{
 		Set<T> result = new LinkedHashSet<T>();
-		add(getNode(object), result);
+		add(getNode(object), result, new HashSet<Node>());
 		result.remove(object);
 
 		return result;
 	}
 
-	/** Add node to final result. */
-	private void add(Node node, Set<T> result)
+	/**
+	 * Add node and everything it depends on to the final result. This is
+	 * a depth-first search using an explicit stack so that long chains of
+	 * dependencies do not overflow the call stack.
+	 */
+	private void add(Node node, Set<T> result, Set<Node> visiting)
 	{
 		if(result.contains(node.type))
 		{
 			return;
 		}
 
-		for(Node n : node.to)
+		Deque<Frame> stack = new ArrayDeque<Frame>();
+		stack.push(new Frame(node));
+		visiting.add(node);
+
+		while(! stack.isEmpty())
+		{
+			Frame frame = stack.peek();
+
+			if(frame.remaining.hasNext())
+			{
+				Node next = frame.remaining.next();
+				if(result.contains(next.type))
+				{
+					// Already resolved via another path
+					continue;
+				}
+
+				if(! visiting.add(next))
+				{
+					throw new ContributionException("Cyclic dependency: " + describeCycle(stack, next));
+				}
+
+				stack.push(new Frame(next));
+			}
+			else
+			{
+				stack.pop();
+				visiting.remove(frame.node);
+				result.add(frame.node.type);
+			}
+		}
+	}
+
+	/**
+	 * Describe the cycle that ends in the given node.
+	 */
+	private String describeCycle(Deque<Frame> stack, Node node)
+	{
+		List<String> path = new ArrayList<String>();
+		Iterator<Frame> it = stack.descendingIterator();
+		boolean inCycle = false;
+		while(it.hasNext())
 		{
-			add(n, result);
+			Node n = it.next().node;
+			if(n == node)
+			{
+				inCycle = true;
+			}
+
+			if(inCycle)
+			{
+				path.add(String.valueOf(n.type));
+			}
 		}
 
-		result.add(node.type);
+		path.add(String.valueOf(node.type));
+		return String.join(" -> ", path);
 	}
 
 	/** Retrieve node for object. */
@@ -138,9 +248,21 @@ public class DependencyResolver<T>
 		{
 			this.type = type;
 
-			to = new HashSet<Node>();
-			from = new HashSet<Node>();
+			to = new LinkedHashSet<Node>();
+			from = new LinkedHashSet<Node>();
 		}
 	}
 
+	/** Frame in the depth-first search. */
+	private class Frame
+	{
+		final Node node;
+		final Iterator<Node> remaining;
+
+		public Frame(Node node)
+		{
+			this.node = node;
+			this.remaining = node.to.iterator();
+		}
+	}
 }
@@ -0,0 +1,46 @@
+package se.l4.crayon.contributions.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default {@link Executor} used when contributions are run in parallel
+ * without an explicit executor, a cached pool of daemon threads.
+ * {@code CrayonModule} passes an executor using virtual threads instead if
+ * the JVM supports them.
+ */
+public class ContributionExecutors
+{
+	private ContributionExecutors()
+	{
+	}
+
+	/**
+	 * Get the shared default executor.
+	 *
+	 * @return
+	 */
+	public static Executor defaultExecutor()
+	{
+		return Holder.EXECUTOR;
+	}
+
+	private static Executor createDefault()
+	{
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = r -> {
+			Thread thread = new Thread(r, "crayon-contributions-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		return Executors.newCachedThreadPool(factory);
+	}
+
+	private static class Holder
+	{
+		static final Executor EXECUTOR = createDefault();
+	}
+}
@@ -0,0 +1,180 @@
+package se.l4.crayon.contributions.internal;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+import se.l4.crayon.contributions.ContributionException;
+import se.l4.crayon.contributions.internal.methods.MethodDef;
+
+/**
+ * Invoker for a single contribution method. Created once per method and
+ * reused for every run of the contributions. The method is invoked via a
+ * {@link MethodHandle} and the {@link Key keys} of its parameters are resolved
+ * when the invoker is created.
+ */
+public class ContributionInvoker
+{
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object[].class);
+
+	private final MethodDef def;
+	private final Injector injector;
+
+	private final MethodHandle handle;
+	private final Key<?>[] keys;
+
+	private volatile Provider<?>[] providers;
+
+	public ContributionInvoker(MethodDef def, Injector injector)
+	{
+		this.def = def;
+		this.injector = injector;
+
+		Method method = def.getMethod();
+		keys = resolveKeys(method);
+		handle = createHandle(def, keys.length);
+	}
+
+	/**
+	 * Get the definition this invoker was created for.
+	 *
+	 * @return
+	 */
+	public MethodDef getDef()
+	{
+		return def;
+	}
+
+	/**
+	 * Invoke the contribution using the injector the invoker was created
+	 * for. Providers for the parameters are resolved on the first
+	 * invocation and reused afterwards.
+	 */
+	public void invoke()
+	{
+		Provider<?>[] providers = this.providers;
+		if(providers == null)
+		{
+			providers = resolveProviders(injector);
+			this.providers = providers;
+		}
+
+		invoke(providers);
+	}
+
+	/**
+	 * Invoke the contribution using the given injector, such as a child
+	 * injector created for a single run.
+	 *
+	 * @param injector
+	 */
+	public void invoke(Injector injector)
+	{
+		if(injector == this.injector)
+		{
+			invoke();
+		}
+		else
+		{
+			invoke(resolveProviders(injector));
+		}
+	}
+
+	private void invoke(Provider<?>[] providers)
+	{
+		Object[] params = new Object[providers.length];
+		for(int i=0, n=providers.length; i<n; i++)
+		{
+			params[i] = providers[i].get();
+		}
+
+		try
+		{
+			handle.invokeExact(params);
+		}
+		catch(Throwable t)
+		{
+			throw new ContributionException(t.getMessage(), t);
+		}
+	}
+
+	private Provider<?>[] resolveProviders(Injector injector)
+	{
+		Provider<?>[] result = new Provider<?>[keys.length];
+		for(int i=0, n=keys.length; i<n; i++)
+		{
+			result[i] = injector.getProvider(keys[i]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Resolve the keys used to get the parameters of the given method.
+	 *
+	 * @param method
+	 * @return
+	 */
+	private static Key<?>[] resolveKeys(Method method)
+	{
+		Type[] var = method.getGenericParameterTypes();
+		Annotation[][] annotations = method.getParameterAnnotations();
+
+		Key<?>[] keys = new Key<?>[var.length];
+		for(int i=0, n=var.length; i<n; i++)
+		{
+			// Use the correct method
+			keys[i] = annotations[i].length == 0
+				? Key.get(var[i])
+				: Key.get(var[i], annotations[i][0]);
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Create a handle for the method of the definition that takes an array
+	 * with the parameters and discards any returned value.
+	 *
+	 * @param def
+	 * @param parameterCount
+	 * @return
+	 */
+	private static MethodHandle createHandle(MethodDef def, int parameterCount)
+	{
+		Method method = def.getMethod();
+
+		try
+		{
+			method.setAccessible(true);
+			MethodHandle handle = MethodHandles.lookup().unreflect(method);
+
+			if(! Modifier.isStatic(method.getModifiers()))
+			{
+				handle = handle.bindTo(def.getObject());
+			}
+
+			return handle
+				.asSpreader(Object[].class, parameterCount)
+				.asType(INVOKER_TYPE);
+		}
+		catch(IllegalAccessException | RuntimeException e)
+		{
+			throw new ContributionException("Unable to access contribution " + def + "; " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContributionInvoker{" + def + "}";
+	}
+}
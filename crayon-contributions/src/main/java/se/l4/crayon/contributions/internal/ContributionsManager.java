@@ -3,18 +3,25 @@ package se.l4.crayon.contributions.internal;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 import com.google.inject.Inject;
 import com.google.inject.Injector;
-import com.google.inject.Key;
 import com.google.inject.Module;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
 import se.l4.crayon.contributions.ContributionException;
+import se.l4.crayon.contributions.ContributionInterceptor;
 import se.l4.crayon.contributions.Contributions;
 import se.l4.crayon.contributions.internal.methods.MethodDef;
 import se.l4.crayon.contributions.internal.methods.MethodResolver;
@@ -33,11 +40,41 @@ public class ContributionsManager
 	private final Set<Object> modules;
 	private final Injector injector;
 
+	/**
+	 * Cache of invokers for contributions in their resolved order. The set of
+	 * modules is fixed once the injector is created, so the order for an
+	 * annotation only needs to be resolved once for this manager.
+	 */
+	private final Map<Class<? extends Annotation>, List<ContributionInvoker>> resolved;
+
+	/**
+	 * Cache of invokers grouped into levels of independent contributions,
+	 * used when contributions run in parallel.
+	 */
+	private final Map<Class<? extends Annotation>, List<List<ContributionInvoker>>> resolvedLevels;
+
+	private volatile ContributionInterceptor interceptor;
+
 	@Inject
 	public ContributionsManager(Injector injector, @Named("crayon-modules") Set<Object> modules)
 	{
 		this.injector = injector;
 		this.modules = modules;
+
+		resolved = new ConcurrentHashMap<>();
+		resolvedLevels = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Set the interceptor to invoke around every contribution, only
+	 * injected if one has been bound.
+	 *
+	 * @param interceptor
+	 */
+	@Inject(optional = true)
+	public void setInterceptor(ContributionInterceptor interceptor)
+	{
+		this.interceptor = interceptor;
 	}
 
 	/**
@@ -142,47 +179,22 @@ public class ContributionsManager
 	 * @param annotation
 	 * @return
 	 */
-	@SuppressWarnings("unchecked")
 	public Contributions createContributions(Class<? extends Annotation> annotation)
 	{
-		Method reflectionName = getMethod(annotation, "name");
-
 		return new Contributions()
 		{
 			@Override
 			public void run(Module... modules)
 			{
-				MethodResolver resolver = new MethodResolver(
-					new MethodResolverCallback()
-					{
-						@Override
-						public String getName(MethodDef def)
-						{
-							Annotation a = def.getMethod()
-								.getAnnotation(annotation);
-
-							String s = findName(def);
-							if(s == null)
-							{
-								// Resolve via the name value on the attribute
-								s = invoke(reflectionName, a);
-							}
-							return s == null || "".equals(s)
-								? def.getObject().getClass() + "-" + def.getMethod().getName()
-								: s;
-						}
-					},
-					annotation
-				);
-
-				if(modules.length == 0)
-				{
-					callMethods(resolver);
-				}
-				else
+				List<ContributionInvoker> invokers = getInvokers(annotation);
+
+				Injector injector = modules.length == 0
+					? ContributionsManager.this.injector
+					: ContributionsManager.this.injector.createChildInjector(modules);
+
+				for(ContributionInvoker invoker : invokers)
 				{
-					Injector childInjector = injector.createChildInjector(modules);
-					callMethods(childInjector, resolver);
+					invoke(annotation, invoker, injector);
 				}
 			}
 
@@ -200,62 +212,261 @@ public class ContributionsManager
 		};
 	}
 
-	private void callMethods(MethodResolver resolver)
+	/**
+	 * Create an instance of {@link Contributions} for the given annotation
+	 * that runs contributions that do not depend on each other in parallel.
+	 * Contributions are run level by level, a level is only started when
+	 * all of the contributions in the previous level have completed.
+	 *
+	 * @param annotation
+	 * @param executor
+	 *   the executor to run contributions on
+	 * @return
+	 */
+	public Contributions createParallelContributions(
+		Class<? extends Annotation> annotation,
+		Executor executor
+	)
 	{
-		callMethods(injector, resolver);
+		return new Contributions()
+		{
+			@Override
+			public void run(Module... modules)
+			{
+				List<List<ContributionInvoker>> levels = getInvokerLevels(annotation);
+
+				Injector injector = modules.length == 0
+					? ContributionsManager.this.injector
+					: ContributionsManager.this.injector.createChildInjector(modules);
+
+				for(List<ContributionInvoker> level : levels)
+				{
+					runLevel(annotation, level, injector, executor);
+				}
+			}
+
+			@Override
+			public void run()
+			{
+				run(EMPTY);
+			}
+
+			@Override
+			public String toString()
+			{
+				return "Contributions[" + annotation.getSimpleName() + ", parallel]";
+			}
+		};
 	}
 
-	private void callMethods(Injector injector, MethodResolver resolver)
+	/**
+	 * Run a level of contributions on the given executor and wait for all of
+	 * them to complete. If any of the contributions fail the failure of the
+	 * first one in the resolved order is thrown, with the failures of the
+	 * others added as suppressed exceptions.
+	 *
+	 * @param annotation
+	 * @param level
+	 * @param injector
+	 * @param executor
+	 */
+	private void runLevel(
+		Class<? extends Annotation> annotation,
+		List<ContributionInvoker> level,
+		Injector injector,
+		Executor executor
+	)
 	{
-		for(Object c : modules)
+		if(level.size() == 1)
 		{
-			resolver.add(c);
+			invoke(annotation, level.get(0), injector);
+			return;
 		}
 
-		final Set<MethodDef> defs = resolver.getOrder();
-		resolver = null;
-
-		// run all contributions in order
-		for(MethodDef def : defs)
+		List<CompletableFuture<Void>> futures = new ArrayList<>(level.size());
+		for(ContributionInvoker invoker : level)
 		{
-			Method method = def.getMethod();
-			Object object = def.getObject();
-
-			Type[] var = method.getGenericParameterTypes();
-
-			Annotation[][] annotations = method.getParameterAnnotations();
-
-			Object[] params = new Object[var.length];
+			futures.add(CompletableFuture.runAsync(() -> invoke(annotation, invoker, injector), executor));
+		}
 
-			for(int i=0, n=var.length; i<n; i++)
+		ContributionException failure = null;
+		for(CompletableFuture<Void> future : futures)
+		{
+			ContributionException e = await(future);
+			if(e == null)
 			{
-				// Use the correct method
-				Key<?> key = annotations[i].length == 0
-					? Key.get(var[i])
-					: Key.get(var[i], annotations[i][0]);
-
-				params[i] = injector.getInstance(key);
+				continue;
 			}
 
-			try
+			if(failure == null)
 			{
-				method.setAccessible(true);
-				method.invoke(object, params);
+				failure = e;
 			}
-			catch(IllegalArgumentException e)
+			else
 			{
-				throw new ContributionException(e.getMessage(), e);
+				failure.addSuppressed(e);
 			}
-			catch(IllegalAccessException e)
+		}
+
+		if(failure != null)
+		{
+			throw failure;
+		}
+	}
+
+	/**
+	 * Invoke a single contribution, via the interceptor if one is bound.
+	 *
+	 * @param annotation
+	 * @param invoker
+	 * @param injector
+	 */
+	private void invoke(
+		Class<? extends Annotation> annotation,
+		ContributionInvoker invoker,
+		Injector injector
+	)
+	{
+		ContributionInterceptor interceptor = this.interceptor;
+		if(interceptor == null)
+		{
+			invoker.invoke(injector);
+		}
+		else
+		{
+			interceptor.intercept(
+				annotation,
+				invoker.getDef().getMethod(),
+				() -> invoker.invoke(injector)
+			);
+		}
+	}
+
+	/**
+	 * Wait for a contribution to complete.
+	 *
+	 * @param future
+	 * @return
+	 *   the failure of the contribution, or {@code null} if it completed
+	 *   normally
+	 */
+	private static ContributionException await(CompletableFuture<Void> future)
+	{
+		try
+		{
+			future.get();
+			return null;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new ContributionException("Interrupted while waiting for contributions", e);
+		}
+		catch(ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			return cause instanceof ContributionException
+				? (ContributionException) cause
+				: new ContributionException(cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * Get invokers for the contributions of the given annotation in the
+	 * order they should be invoked. Resolved on first use and then reused.
+	 *
+	 * @param annotation
+	 * @return
+	 */
+	List<ContributionInvoker> getInvokers(Class<? extends Annotation> annotation)
+	{
+		return resolved.computeIfAbsent(annotation, a -> {
+			List<ContributionInvoker> result = new ArrayList<>();
+			for(MethodDef def : resolveOrder(a))
 			{
-				throw new ContributionException(e.getMessage(), e);
+				result.add(new ContributionInvoker(def, injector));
 			}
-			catch(InvocationTargetException e)
+
+			return Collections.unmodifiableList(result);
+		});
+	}
+
+	/**
+	 * Get invokers for the contributions of the given annotation grouped into
+	 * levels of contributions that can run in parallel.
+	 *
+	 * @param annotation
+	 * @return
+	 */
+	List<List<ContributionInvoker>> getInvokerLevels(Class<? extends Annotation> annotation)
+	{
+		return resolvedLevels.computeIfAbsent(annotation, a -> {
+			List<List<ContributionInvoker>> result = new ArrayList<>();
+			for(Set<MethodDef> level : createResolver(a).getLevels())
 			{
-				Throwable cause = e.getCause();
+				List<ContributionInvoker> invokers = new ArrayList<>(level.size());
+				for(MethodDef def : level)
+				{
+					invokers.add(new ContributionInvoker(def, injector));
+				}
 
-				throw new ContributionException(cause.getMessage(), cause);
+				result.add(Collections.unmodifiableList(invokers));
 			}
+
+			return Collections.unmodifiableList(result);
+		});
+	}
+
+	/**
+	 * Resolve the order of the contributions for the given annotation.
+	 *
+	 * @param annotation
+	 * @return
+	 */
+	private Set<MethodDef> resolveOrder(Class<? extends Annotation> annotation)
+	{
+		return createResolver(annotation).getOrder();
+	}
+
+	/**
+	 * Create a resolver with all of the contributions for the given
+	 * annotation added.
+	 *
+	 * @param annotation
+	 * @return
+	 */
+	private MethodResolver createResolver(Class<? extends Annotation> annotation)
+	{
+		Method reflectionName = getMethod(annotation, "name");
+
+		MethodResolver resolver = new MethodResolver(
+			new MethodResolverCallback()
+			{
+				@Override
+				public String getName(MethodDef def)
+				{
+					Annotation a = def.getMethod()
+						.getAnnotation(annotation);
+
+					String s = findName(def);
+					if(s == null)
+					{
+						// Resolve via the name value on the attribute
+						s = invoke(reflectionName, a);
+					}
+					return s == null || "".equals(s)
+						? def.getObject().getClass() + "-" + def.getMethod().getName()
+						: s;
+				}
+			},
+			annotation
+		);
+
+		for(Object c : modules)
+		{
+			resolver.add(c);
 		}
+
+		return resolver;
 	}
 }
@@ -0,0 +1,361 @@
+package se.l4.crayon.contributions.internal.index;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import se.l4.crayon.contributions.ContributionException;
+import se.l4.crayon.contributions.internal.methods.MethodDef;
+
+/**
+ * Index of the public methods in a module, generated at build time by
+ * {@link ContributionIndexProcessor}. Used to avoid scanning every method of
+ * every module via reflection each time contributions are run.
+ *
+ * <p>
+ * The index for a module is stored as a resource named
+ * {@code META-INF/se.l4.crayon.contributions/<binary name of module>}. The
+ * format is line based where every line starts with a keyword followed by a
+ * single space and a value:
+ *
+ * <pre>
+ * version 3
+ * fingerprint 12-3f2a9c1b
+ * method contributeService
+ * param se.l4.crayon.services.ServiceCollector
+ * annotation se.l4.crayon.services.ServiceContribution
+ * order after:http-server
+ * </pre>
+ *
+ * Each {@code method} line starts a new method, the lines that follow it
+ * describe that method.
+ *
+ * <p>
+ * The {@code fingerprint} covers the signatures of all public methods of the
+ * module together with their runtime visible annotations and order. If a
+ * module is recompiled without the processor, such as by an IDE, and a method
+ * or one of its annotations changed the fingerprint no longer matches and
+ * reflection is used instead. The fingerprint is checked once per module.
+ * Indexes written by other versions of the processor are ignored.
+ */
+public class ContributionIndex
+{
+	/**
+	 * The location indexes are stored at.
+	 */
+	public static final String LOCATION = "META-INF/se.l4.crayon.contributions/";
+
+	private static final int VERSION = 3;
+
+	private static final ClassValue<Optional<ContributionIndex>> CACHE = new ClassValue<>()
+	{
+		@Override
+		protected Optional<ContributionIndex> computeValue(Class<?> type)
+		{
+			return Optional.ofNullable(load(type));
+		}
+	};
+
+	private final String fingerprint;
+	private final List<IndexedMethod> methods;
+
+	public ContributionIndex(String fingerprint, List<IndexedMethod> methods)
+	{
+		this.fingerprint = fingerprint;
+		this.methods = methods;
+	}
+
+	/**
+	 * Get the fingerprint of the public methods of the module at the time
+	 * the index was generated.
+	 *
+	 * @return
+	 *   fingerprint, or {@code null} if the index does not have one
+	 */
+	public String getFingerprint()
+	{
+		return fingerprint;
+	}
+
+	/**
+	 * Get all of the methods in this index.
+	 *
+	 * @return
+	 */
+	public List<IndexedMethod> getMethods()
+	{
+		return methods;
+	}
+
+	/**
+	 * Get the index for the given type. The index is only read once per type.
+	 *
+	 * @param type
+	 *   the type to get the index for
+	 * @return
+	 *   index if one has been generated and it matches the methods of the
+	 *   type, otherwise {@code null}
+	 */
+	public static ContributionIndex get(Class<?> type)
+	{
+		return CACHE.get(type).orElse(null);
+	}
+
+	/**
+	 * Get the name of the resource the index for the given binary name is
+	 * stored in.
+	 *
+	 * @param binaryName
+	 * @return
+	 */
+	public static String getResourceName(String binaryName)
+	{
+		return LOCATION + binaryName;
+	}
+
+	private static ContributionIndex load(Class<?> type)
+	{
+		InputStream stream = type.getResourceAsStream("/" + getResourceName(type.getName()));
+		if(stream == null)
+		{
+			return null;
+		}
+
+		ContributionIndex index;
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)))
+		{
+			index = read(reader);
+		}
+		catch(IOException e)
+		{
+			throw new ContributionException("Could not read contribution index for " + type + "; " + e.getMessage(), e);
+		}
+
+		// An index that does not match the compiled class is stale
+		if(index == null || index.fingerprint == null || ! index.fingerprint.equals(fingerprint(type)))
+		{
+			return null;
+		}
+
+		return index;
+	}
+
+	/**
+	 * Calculate the fingerprint of the public methods of the given type and
+	 * their annotations.
+	 *
+	 * @param type
+	 * @return
+	 */
+	public static String fingerprint(Class<?> type)
+	{
+		Set<String> signatures = new TreeSet<>();
+		for(Method method : type.getMethods())
+		{
+			if(method.getDeclaringClass() == Object.class
+				|| Modifier.isStatic(method.getModifiers())
+				|| method.isBridge()
+				|| method.isSynthetic())
+			{
+				continue;
+			}
+
+			List<String> params = new ArrayList<>();
+			for(Class<?> param : method.getParameterTypes())
+			{
+				params.add(param.getName());
+			}
+
+			List<String> annotations = new ArrayList<>();
+			for(Annotation annotation : method.getAnnotations())
+			{
+				annotations.add(annotation.annotationType().getName());
+			}
+
+			List<String> order = annotations.isEmpty()
+				? Collections.emptyList()
+				: MethodDef.resolveOrder(method);
+
+			signatures.add(signature(method.getName(), params, annotations, order));
+		}
+
+		return fingerprint(signatures);
+	}
+
+	/**
+	 * Calculate a fingerprint from the given method signatures.
+	 *
+	 * @param signatures
+	 *   signatures created via {@link #signature(String, List, Collection, List)}
+	 * @return
+	 */
+	public static String fingerprint(Collection<String> signatures)
+	{
+		Set<String> sorted = new TreeSet<>(signatures);
+		return sorted.size() + "-" + Integer.toHexString(String.join(";", sorted).hashCode());
+	}
+
+	/**
+	 * Create the signature of a method used when calculating a fingerprint.
+	 *
+	 * @param name
+	 * @param parameterTypes
+	 *   binary names of the parameter types
+	 * @param annotations
+	 *   binary names of the runtime visible annotations of the method
+	 * @param order
+	 *   the order of the method as resolved from its annotations
+	 * @return
+	 */
+	public static String signature(
+		String name,
+		List<String> parameterTypes,
+		Collection<String> annotations,
+		List<String> order
+	)
+	{
+		String signature = name + "(" + String.join(",", parameterTypes) + ")";
+		if(annotations.isEmpty())
+		{
+			return signature;
+		}
+
+		return signature
+			+ "@" + String.join(",", new TreeSet<>(annotations))
+			+ "[" + String.join(",", order) + "]";
+	}
+
+	/**
+	 * Read an index from the given reader.
+	 *
+	 * @param reader
+	 * @return
+	 *   the index, or {@code null} if it was written by another version of
+	 *   the processor
+	 * @throws IOException
+	 */
+	public static ContributionIndex read(BufferedReader reader)
+		throws IOException
+	{
+		List<IndexedMethod> methods = new ArrayList<>();
+		String fingerprint = null;
+
+		String name = null;
+		List<String> params = null;
+		Set<String> annotations = null;
+		List<String> order = null;
+
+		String line;
+		while((line = reader.readLine()) != null)
+		{
+			if(line.isEmpty()) continue;
+
+			int idx = line.indexOf(' ');
+			String keyword = idx == -1 ? line : line.substring(0, idx);
+			String value = idx == -1 ? "" : line.substring(idx + 1);
+
+			switch(keyword)
+			{
+				case "version":
+					if(! String.valueOf(VERSION).equals(value))
+					{
+						return null;
+					}
+					break;
+				case "fingerprint":
+					fingerprint = value;
+					break;
+				case "method":
+					if(name != null)
+					{
+						methods.add(new IndexedMethod(name, params, annotations, order));
+					}
+
+					name = value;
+					params = new ArrayList<>();
+					annotations = new LinkedHashSet<>();
+					order = new ArrayList<>();
+					break;
+				case "param":
+					requireMethod(name, line);
+					params.add(value);
+					break;
+				case "annotation":
+					requireMethod(name, line);
+					annotations.add(value);
+					break;
+				case "order":
+					requireMethod(name, line);
+					order.add(value);
+					break;
+				default:
+					throw new IOException("Unknown entry in index: " + line);
+			}
+		}
+
+		if(name != null)
+		{
+			methods.add(new IndexedMethod(name, params, annotations, order));
+		}
+
+		return new ContributionIndex(fingerprint, Collections.unmodifiableList(methods));
+	}
+
+	private static void requireMethod(String name, String line)
+		throws IOException
+	{
+		if(name == null)
+		{
+			throw new IOException("Entry found before method: " + line);
+		}
+	}
+
+	/**
+	 * Write the given methods to the writer.
+	 *
+	 * @param fingerprint
+	 * @param methods
+	 * @param writer
+	 * @throws IOException
+	 */
+	public static void write(String fingerprint, Iterable<IndexedMethod> methods, Writer writer)
+		throws IOException
+	{
+		writer.write("version " + VERSION + "\n");
+		writer.write("fingerprint " + fingerprint + "\n");
+
+		for(IndexedMethod method : methods)
+		{
+			writer.write("method " + method.getName() + "\n");
+
+			for(String param : method.getParameterTypes())
+			{
+				writer.write("param " + param + "\n");
+			}
+
+			for(String annotation : method.getAnnotations())
+			{
+				writer.write("annotation " + annotation + "\n");
+			}
+
+			for(String order : method.getOrder())
+			{
+				writer.write("order " + order + "\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package se.l4.crayon.contributions.internal.index;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import se.l4.crayon.contributions.After;
+import se.l4.crayon.contributions.Before;
+import se.l4.crayon.contributions.Order;
+
+/**
+ * Annotation processor that generates a {@link ContributionIndex} for every
+ * concrete Guice module being compiled. The index contains all public methods
+ * that have runtime visible annotations together with their resolved
+ * {@link Order}, {@link Before} and {@link After} definitions.
+ *
+ * <p>
+ * The processor is registered as a service so it is picked up automatically
+ * when {@code crayon-contributions} is on the annotation processor path.
+ */
+@SupportedAnnotationTypes("*")
+public class ContributionIndexProcessor
+	extends AbstractProcessor
+{
+	private static final String MODULE = "com.google.inject.Module";
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement module = elements.getTypeElement(MODULE);
+		if(module == null)
+		{
+			// Guice is not available, nothing can be a module
+			return false;
+		}
+
+		TypeMirror moduleType = processingEnv.getTypeUtils().erasure(module.asType());
+		for(TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements()))
+		{
+			processType(type, moduleType);
+		}
+
+		return false;
+	}
+
+	private void processType(TypeElement type, TypeMirror moduleType)
+	{
+		for(TypeElement inner : ElementFilter.typesIn(type.getEnclosedElements()))
+		{
+			processType(inner, moduleType);
+		}
+
+		if(type.getKind() != ElementKind.CLASS
+			|| type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			return;
+		}
+
+		Types types = processingEnv.getTypeUtils();
+		if(! types.isAssignable(types.erasure(type.asType()), moduleType))
+		{
+			return;
+		}
+
+		List<IndexedMethod> methods = new ArrayList<>();
+		Set<String> signatures = new HashSet<>();
+		Elements elements = processingEnv.getElementUtils();
+		for(ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type)))
+		{
+			if(! method.getModifiers().contains(Modifier.PUBLIC)
+				|| method.getModifiers().contains(Modifier.STATIC))
+			{
+				continue;
+			}
+
+			List<String> params = new ArrayList<>();
+			for(VariableElement param : method.getParameters())
+			{
+				params.add(toBinaryName(param.asType()));
+			}
+
+			Set<String> annotations = new LinkedHashSet<>();
+			for(AnnotationMirror mirror : method.getAnnotationMirrors())
+			{
+				TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+				if(isRuntimeVisible(annotationType))
+				{
+					annotations.add(elements.getBinaryName(annotationType).toString());
+				}
+			}
+
+			List<String> order = new ArrayList<>();
+			if(! annotations.isEmpty())
+			{
+				resolveOrder(method.getAnnotationMirrors(), order, new HashSet<>());
+			}
+
+			TypeElement owner = (TypeElement) method.getEnclosingElement();
+			if(! owner.getQualifiedName().contentEquals(Object.class.getName()))
+			{
+				signatures.add(ContributionIndex.signature(
+					method.getSimpleName().toString(),
+					params,
+					annotations,
+					order
+				));
+			}
+
+			if(annotations.isEmpty()) continue;
+
+			methods.add(new IndexedMethod(
+				method.getSimpleName().toString(),
+				params,
+				annotations,
+				order
+			));
+		}
+
+		String binaryName = elements.getBinaryName(type).toString();
+		try
+		{
+			FileObject file = processingEnv.getFiler().createResource(
+				StandardLocation.CLASS_OUTPUT,
+				"",
+				ContributionIndex.getResourceName(binaryName),
+				type
+			);
+
+			try(Writer writer = file.openWriter())
+			{
+				ContributionIndex.write(ContributionIndex.fingerprint(signatures), methods, writer);
+			}
+		}
+		catch(IOException e)
+		{
+			processingEnv.getMessager().printMessage(
+				Diagnostic.Kind.ERROR,
+				"Could not write contribution index for " + binaryName + "; " + e.getMessage(),
+				type
+			);
+		}
+	}
+
+	/**
+	 * Resolve the order of a method, mirrors how
+	 * {@link se.l4.crayon.contributions.internal.methods.MethodDef} resolves
+	 * the order via reflection.
+	 */
+	private void resolveOrder(
+		List<? extends AnnotationMirror> mirrors,
+		List<String> order,
+		Set<String> visited
+	)
+	{
+		Elements elements = processingEnv.getElementUtils();
+		for(AnnotationMirror mirror : mirrors)
+		{
+			TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+			if(! isRuntimeVisible(annotationType)) continue;
+
+			String name = annotationType.getQualifiedName().toString();
+			if(name.equals(Order.class.getName()))
+			{
+				order.addAll(getValues(mirror));
+			}
+			else if(name.equals(After.class.getName()))
+			{
+				for(String s : getValues(mirror))
+				{
+					order.add("after:" + s);
+				}
+			}
+			else if(name.equals(Before.class.getName()))
+			{
+				for(String s : getValues(mirror))
+				{
+					order.add("before:" + s);
+				}
+			}
+			else if(visited.add(name))
+			{
+				resolveOrder(elements.getAllAnnotationMirrors(annotationType), order, visited);
+			}
+		}
+	}
+
+	private List<String> getValues(AnnotationMirror mirror)
+	{
+		List<String> result = new ArrayList<>();
+		Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils()
+			.getElementValuesWithDefaults(mirror);
+
+		for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : values.entrySet())
+		{
+			if(! e.getKey().getSimpleName().contentEquals("value")) continue;
+
+			Object value = e.getValue().getValue();
+			if(value instanceof List)
+			{
+				for(Object o : (List<?>) value)
+				{
+					result.add(String.valueOf(((AnnotationValue) o).getValue()));
+				}
+			}
+			else
+			{
+				result.add(String.valueOf(value));
+			}
+		}
+
+		return result;
+	}
+
+	private static boolean isRuntimeVisible(TypeElement annotationType)
+	{
+		Retention retention = annotationType.getAnnotation(Retention.class);
+		return retention != null && retention.value() == RetentionPolicy.RUNTIME;
+	}
+
+	/**
+	 * Get the binary name of the erasure of the type in the format used by
+	 * {@link Class#getName()}.
+	 */
+	private String toBinaryName(TypeMirror type)
+	{
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror erased = types.erasure(type);
+
+		if(erased.getKind().isPrimitive())
+		{
+			return erased.toString();
+		}
+
+		if(erased.getKind() == TypeKind.ARRAY)
+		{
+			return "[" + toDescriptor(((ArrayType) erased).getComponentType());
+		}
+
+		Element element = types.asElement(erased);
+		return processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+	}
+
+	private String toDescriptor(TypeMirror type)
+	{
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror erased = types.erasure(type);
+
+		switch(erased.getKind())
+		{
+			case BOOLEAN:
+				return "Z";
+			case BYTE:
+				return "B";
+			case SHORT:
+				return "S";
+			case CHAR:
+				return "C";
+			case INT:
+				return "I";
+			case LONG:
+				return "J";
+			case FLOAT:
+				return "F";
+			case DOUBLE:
+				return "D";
+			case ARRAY:
+				return "[" + toDescriptor(((ArrayType) erased).getComponentType());
+			default:
+				Element element = types.asElement(erased);
+				return "L" + processingEnv.getElementUtils().getBinaryName((TypeElement) element) + ";";
+		}
+	}
+}
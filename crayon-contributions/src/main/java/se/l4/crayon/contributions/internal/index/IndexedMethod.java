@@ -0,0 +1,140 @@
+package se.l4.crayon.contributions.internal.index;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Entry in a {@link ContributionIndex}, describes a single public method of
+ * a module together with its annotations and ordering.
+ */
+public class IndexedMethod
+{
+	private final String name;
+	private final List<String> parameterTypes;
+	private final Set<String> annotations;
+	private final List<String> order;
+
+	public IndexedMethod(
+		String name,
+		List<String> parameterTypes,
+		Set<String> annotations,
+		List<String> order
+	)
+	{
+		this.name = name;
+		this.parameterTypes = parameterTypes;
+		this.annotations = annotations;
+		this.order = order;
+	}
+
+	/**
+	 * Get the name of the method.
+	 *
+	 * @return
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Get the binary names of the parameter types, in the format returned
+	 * by {@link Class#getName()}.
+	 *
+	 * @return
+	 */
+	public List<String> getParameterTypes()
+	{
+		return parameterTypes;
+	}
+
+	/**
+	 * Get the binary names of the runtime visible annotations present on
+	 * the method.
+	 *
+	 * @return
+	 */
+	public Set<String> getAnnotations()
+	{
+		return annotations;
+	}
+
+	/**
+	 * Get the order definitions of this method, in the same format as
+	 * {@link se.l4.crayon.contributions.Order}.
+	 *
+	 * @return
+	 */
+	public List<String> getOrder()
+	{
+		return order;
+	}
+
+	/**
+	 * Get if this method is annotated with the given annotation.
+	 *
+	 * @param annotation
+	 * @return
+	 */
+	public boolean isAnnotatedWith(Class<?> annotation)
+	{
+		return annotations.contains(annotation.getName());
+	}
+
+	/**
+	 * Resolve the actual method on the given type.
+	 *
+	 * @param type
+	 *   the type the index was read for
+	 * @return
+	 *   the method
+	 * @throws ReflectiveOperationException
+	 *   if the method can not be found, usually because the index is stale
+	 */
+	public Method resolve(Class<?> type)
+		throws ReflectiveOperationException
+	{
+		ClassLoader loader = type.getClassLoader();
+		Class<?>[] params = new Class<?>[parameterTypes.size()];
+		for(int i=0, n=params.length; i<n; i++)
+		{
+			params[i] = loadClass(parameterTypes.get(i), loader);
+		}
+
+		return type.getMethod(name, params);
+	}
+
+	private static Class<?> loadClass(String name, ClassLoader loader)
+		throws ClassNotFoundException
+	{
+		switch(name)
+		{
+			case "boolean":
+				return boolean.class;
+			case "byte":
+				return byte.class;
+			case "short":
+				return short.class;
+			case "char":
+				return char.class;
+			case "int":
+				return int.class;
+			case "long":
+				return long.class;
+			case "float":
+				return float.class;
+			case "double":
+				return double.class;
+		}
+
+		return Class.forName(name, false, loader);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "IndexedMethod{name=" + name + ", parameterTypes=" + parameterTypes
+			+ ", annotations=" + annotations + ", order=" + order + "}";
+	}
+}
@@ -17,12 +17,30 @@ public class MethodDef
 	private final Object object;
 	private final Method method;
 
+	private List<String> order;
+
 	public MethodDef(Object object, Method method)
 	{
 		this.object = object;
 		this.method = method;
 	}
 
+	/**
+	 * Create a definition where the order has already been resolved, such
+	 * as when it has been read from a
+	 * {@link se.l4.crayon.contributions.internal.index.ContributionIndex}.
+	 *
+	 * @param object
+	 * @param method
+	 * @param order
+	 */
+	public MethodDef(Object object, Method method, List<String> order)
+	{
+		this.object = object;
+		this.method = method;
+		this.order = order;
+	}
+
 	public Method getMethod()
 	{
 		return method;
@@ -34,13 +52,31 @@ public class MethodDef
 	}
 
 	public List<String> getOrder()
+	{
+		if(order == null)
+		{
+			order = resolveOrder(method);
+		}
+
+		return order;
+	}
+
+	/**
+	 * Resolve the order of a method from its {@link Order}, {@link Before}
+	 * and {@link After} annotations, including those present on its other
+	 * annotations.
+	 *
+	 * @param method
+	 * @return
+	 */
+	public static List<String> resolveOrder(Method method)
 	{
 		List<String> order = new ArrayList<String>();
 		handle(method.getAnnotations(), order, new HashSet<Class<? extends Annotation>>());
 		return order;
 	}
 
-	private void handle(Annotation[] annotations, List<String> order, Set<Class<? extends Annotation>> visited)
+	private static void handle(Annotation[] annotations, List<String> order, Set<Class<? extends Annotation>> visited)
 	{
 		for(Annotation a : annotations)
 		{
@@ -2,6 +2,8 @@ package se.l4.crayon.contributions.internal.methods;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -11,6 +13,8 @@ import java.util.Set;
 
 import se.l4.crayon.contributions.ContributionException;
 import se.l4.crayon.contributions.DependencyResolver;
+import se.l4.crayon.contributions.internal.index.ContributionIndex;
+import se.l4.crayon.contributions.internal.index.IndexedMethod;
 
 /**
  * Class for discovering methods annotated with a special annotation and the
@@ -18,6 +22,11 @@ import se.l4.crayon.contributions.DependencyResolver;
  */
 public class MethodResolver
 {
+	/** Virtual node that runs after all methods marked as first. */
+	private static final MethodDef FIRST = createMarker("<first>");
+	/** Virtual node that runs before all methods marked as last. */
+	private static final MethodDef LAST = createMarker("<last>");
+
 	private HashSet<Class<?>> classes;
 
 	private Map<String, MethodDef> methods;
@@ -26,6 +35,8 @@ public class MethodResolver
 	private Class<? extends Annotation>[] annotations;
 	private MethodResolverCallback callback;
 
+	@SafeVarargs
+	@SuppressWarnings("varargs")
 	public MethodResolver(
 		MethodResolverCallback callback,
 		Class<? extends Annotation>... annotations)
@@ -48,9 +59,15 @@ public class MethodResolver
 			return;
 		}
 
+		// Use the index generated at build time if available
+		ContributionIndex index = ContributionIndex.get(type);
+		if(index != null && addIndexed(instance, index))
+		{
+			return;
+		}
+
 		// Otherwise create an instance and loop through methods
 		Method[] declared = type.getMethods();
-		List<MethodDef> defs = getMethodDefs(type);
 
 		_outer:
 		for(Method m : declared)
@@ -63,13 +80,64 @@ public class MethodResolver
 				}
 			}
 
-			MethodDef def = new MethodDef(instance, m);
-			String name = callback.getName(def);
+			addMethod(new MethodDef(instance, m));
+		}
+	}
+
+	/**
+	 * Add a single method definition.
+	 *
+	 * @param def
+	 */
+	public void addMethod(MethodDef def)
+	{
+		String name = callback.getName(def);
+
+		// Store the definition
+		methods.put(name, def);
+		getMethodDefs(def.getObject().getClass()).add(def);
+	}
+
+	/**
+	 * Add all of the methods found in the index of the given instance.
+	 *
+	 * @return
+	 *   {@code true} if the index could be used, {@code false} if a method
+	 *   in the index could not be found and reflection should be used
+	 */
+	private boolean addIndexed(Object instance, ContributionIndex index)
+	{
+		List<MethodDef> found = new LinkedList<MethodDef>();
+
+		_outer:
+		for(IndexedMethod indexed : index.getMethods())
+		{
+			for(Class<? extends Annotation> a : annotations)
+			{
+				if(! indexed.isAnnotatedWith(a))
+				{
+					continue _outer;
+				}
+			}
+
+			try
+			{
+				Method m = indexed.resolve(instance.getClass());
+				found.add(new MethodDef(instance, m, indexed.getOrder()));
+			}
+			catch(ReflectiveOperationException | LinkageError e)
+			{
+				// The index is stale, fallback to reflection
+				return false;
+			}
+		}
 
-			// Store the definition
-			methods.put(name, def);
-			defs.add(def);
+		for(MethodDef def : found)
+		{
+			addMethod(def);
 		}
+
+		return true;
 	}
 
 	private List<MethodDef> getMethodDefs(Class<?> c)
@@ -86,10 +154,46 @@ public class MethodResolver
 	}
 
 	public Set<MethodDef> getOrder()
+	{
+		Set<MethodDef> result = createResolver().getOrder();
+		result.remove(FIRST);
+		result.remove(LAST);
+		return result;
+	}
+
+	/**
+	 * Get the methods grouped into levels, where methods in the same level
+	 * do not depend on each other.
+	 *
+	 * @return
+	 */
+	public List<Set<MethodDef>> getLevels()
+	{
+		List<Set<MethodDef>> result = new ArrayList<Set<MethodDef>>();
+		for(Set<MethodDef> level : createResolver().getLevels())
+		{
+			level.remove(FIRST);
+			level.remove(LAST);
+
+			if(! level.isEmpty())
+			{
+				result.add(level);
+			}
+		}
+
+		return result;
+	}
+
+	private DependencyResolver<MethodDef> createResolver()
 	{
 		DependencyResolver<MethodDef> resolver =
 			new DependencyResolver<MethodDef>();
 
+		List<MethodDef> first = new ArrayList<MethodDef>();
+		List<MethodDef> last = new ArrayList<MethodDef>();
+		List<MethodDef> notFirst = new ArrayList<MethodDef>();
+		List<MethodDef> notLast = new ArrayList<MethodDef>();
+
 		for(Map.Entry<String, MethodDef> e : methods.entrySet())
 		{
 			MethodDef def = e.getValue();
@@ -98,13 +202,60 @@ public class MethodResolver
 			resolver.add(def);
 
 			// Take care of order dependencies
+			boolean isFirst = false;
+			boolean isLast = false;
 			for(String s : def.getOrder())
 			{
-				handleOrderEntry(resolver, def, s);
+				if(s.equals("first"))
+				{
+					isFirst = true;
+				}
+				else if(s.equals("last"))
+				{
+					isLast = true;
+				}
+				else
+				{
+					handleOrderEntry(resolver, def, s);
+				}
 			}
+
+			(isFirst ? first : notFirst).add(def);
+			(isLast ? last : notLast).add(def);
 		}
 
-		return resolver.getOrder();
+		/*
+		 * Methods that should run first or last are ordered via virtual
+		 * nodes, so that the number of dependencies grows linearly with the
+		 * number of methods.
+		 */
+		if(! first.isEmpty())
+		{
+			for(MethodDef def : first)
+			{
+				resolver.addDependency(FIRST, def);
+			}
+
+			for(MethodDef def : notFirst)
+			{
+				resolver.addDependency(def, FIRST);
+			}
+		}
+
+		if(! last.isEmpty())
+		{
+			for(MethodDef def : notLast)
+			{
+				resolver.addDependency(LAST, def);
+			}
+
+			for(MethodDef def : last)
+			{
+				resolver.addDependency(def, LAST);
+			}
+		}
+
+		return resolver;
 	}
 
 	private void handleOrderEntry(DependencyResolver<MethodDef> resolver, MethodDef def, String s)
@@ -129,46 +280,6 @@ public class MethodResolver
 				resolver.addDependency(def, d);
 			}
 		}
-		else if(s.equals("last"))
-		{
-			for(MethodDef d : methods.values())
-			{
-				boolean ok = true;
-				for(String sd : d.getOrder())
-				{
-					if(sd.equals("last"))
-					{
-						ok = false;
-						break;
-					}
-				}
-
-				if(ok)
-				{
-					resolver.addDependency(def, d);
-				}
-			}
-		}
-		else if(s.equals("first"))
-		{
-			for(MethodDef d : methods.values())
-			{
-				boolean ok = true;
-				for(String sd : d.getOrder())
-				{
-					if(sd.equals("first"))
-					{
-						ok = false;
-						break;
-					}
-				}
-
-				if(ok)
-				{
-					resolver.addDependency(d, def);
-				}
-			}
-		}
 		else
 		{
 			throw new ContributionException("Invalid order `" + s
@@ -177,4 +288,18 @@ public class MethodResolver
 		}
 	}
 
+	/**
+	 * Create a virtual node used to order methods marked as first or last.
+	 */
+	private static MethodDef createMarker(String name)
+	{
+		return new MethodDef(null, null, Collections.<String>emptyList())
+		{
+			@Override
+			public String toString()
+			{
+				return name;
+			}
+		};
+	}
 }
@@ -0,0 +1,196 @@
+package se.l4.crayon.contributions;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Qualifier;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Named;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.crayon.contributions.internal.index.ContributionIndex;
+import se.l4.crayon.contributions.internal.index.IndexedMethod;
+
+/**
+ * Tests for the index generated by the annotation processor. The test sources
+ * are compiled with the processor active, see {@code pom.xml}.
+ */
+public class ContributionIndexTest
+{
+	@Test
+	public void testIndexGenerated()
+	{
+		ContributionIndex index = ContributionIndex.get(IndexedModule.class);
+		assertThat(index, notNullValue());
+		assertThat(index.getMethods().size(), is(2));
+
+		IndexedMethod second = find(index, "second");
+		assertThat(second.isAnnotatedWith(IndexAnnotation.class), is(true));
+		assertThat(second.getParameterTypes(), is(List.of("com.google.inject.Injector")));
+		assertThat(second.getOrder(), is(List.of("after:first")));
+	}
+
+	@Test
+	public void testNoIndexForAnonymousModule()
+	{
+		Object module = new AbstractModule() {};
+		assertThat(ContributionIndex.get(module.getClass()), nullValue());
+	}
+
+	@Test
+	public void testRoundTrip()
+		throws IOException
+	{
+		ContributionIndex index = ContributionIndex.get(IndexedModule.class);
+
+		StringWriter writer = new StringWriter();
+		ContributionIndex.write(index.getFingerprint(), index.getMethods(), writer);
+
+		ContributionIndex read = ContributionIndex.read(new BufferedReader(new StringReader(writer.toString())));
+		assertThat(read.getMethods().toString(), is(index.getMethods().toString()));
+		assertThat(read.getFingerprint(), is(index.getFingerprint()));
+	}
+
+	@Test
+	public void testFingerprintMatchesCompiledClass()
+	{
+		ContributionIndex index = ContributionIndex.get(IndexedModule.class);
+		assertThat(index.getFingerprint(), is(ContributionIndex.fingerprint(IndexedModule.class)));
+	}
+
+	@Test
+	public void testFingerprintChangesWithMethods()
+	{
+		// A method added without regenerating the index makes it stale
+		String fingerprint = ContributionIndex.get(IndexedModule.class).getFingerprint();
+		assertThat(fingerprint.equals(ContributionIndex.fingerprint(ExtendedModule.class)), is(false));
+	}
+
+	@Test
+	public void testFingerprintChangesWithAnnotations()
+	{
+		// Same methods, but annotations changed without regenerating the index
+		String fingerprint = ContributionIndex.get(IndexedModule.class).getFingerprint();
+		assertThat(fingerprint.equals(ContributionIndex.fingerprint(ReannotatedModule.class)), is(false));
+	}
+
+	@Test
+	public void testFingerprintChangesWithOrder()
+	{
+		String fingerprint = ContributionIndex.get(IndexedModule.class).getFingerprint();
+		assertThat(fingerprint.equals(ContributionIndex.fingerprint(ReorderedModule.class)), is(false));
+	}
+
+	@Test
+	public void testOlderVersionIgnored()
+		throws IOException
+	{
+		String data = "version 2\nfingerprint 1-0\nmethod first\n";
+		assertThat(ContributionIndex.read(new BufferedReader(new StringReader(data))), nullValue());
+	}
+
+	@Test
+	public void testRunWithIndex()
+	{
+		IndexedModule module = new IndexedModule();
+		Injector injector = Guice.createInjector(module);
+
+		injector.getInstance(Key.get(Contributions.class, IndexAnnotation.class))
+			.run();
+
+		assertThat(module.calls, is(List.of("first", "second")));
+	}
+
+	private static IndexedMethod find(ContributionIndex index, String name)
+	{
+		return index.getMethods().stream()
+			.filter(m -> m.getName().equals(name))
+			.findFirst()
+			.get();
+	}
+
+	public static class IndexedModule
+		extends AbstractModule
+	{
+		private final List<String> calls = new ArrayList<>();
+
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(binder(), this)
+				.bindContributions(IndexAnnotation.class);
+		}
+
+		@IndexAnnotation
+		@After("first")
+		public void second(Injector injector)
+		{
+			calls.add("second");
+		}
+
+		@IndexAnnotation
+		@Named("first")
+		public void first()
+		{
+			calls.add("first");
+		}
+
+		public void notAnnotated()
+		{
+		}
+	}
+
+	public static class ExtendedModule
+		extends IndexedModule
+	{
+		@IndexAnnotation
+		public void third()
+		{
+		}
+	}
+
+	public static class ReannotatedModule
+		extends IndexedModule
+	{
+		@Override
+		@IndexAnnotation
+		public void notAnnotated()
+		{
+		}
+	}
+
+	public static class ReorderedModule
+		extends IndexedModule
+	{
+		@Override
+		@IndexAnnotation
+		@After("notAnnotated")
+		public void second(Injector injector)
+		{
+		}
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Documented
+	@Qualifier
+	public @interface IndexAnnotation
+	{
+	}
+}
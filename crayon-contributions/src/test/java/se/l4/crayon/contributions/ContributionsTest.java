@@ -3,10 +3,18 @@ package se.l4.crayon.contributions;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Qualifier;
 
@@ -20,6 +28,7 @@ import com.google.inject.name.Names;
 
 import org.junit.jupiter.api.Test;
 
+
 /**
  * Basic test for running startup and shutdown methods.
  */
@@ -38,6 +47,108 @@ public class ContributionsTest
 		assertThat(testModule.ranStartup, is(true));
 	}
 
+	@Test
+	public void testRunMultipleTimes()
+	{
+		TestModule4 testModule = new TestModule4();
+
+		Injector i = Guice.createInjector(testModule);
+
+		Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+		c.run();
+		c.run();
+
+		assertThat(testModule.calls, is(4));
+	}
+
+	@Test
+	public void testFailingContribution()
+	{
+		Injector i = Guice.createInjector(new FailingModule());
+
+		Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+		ContributionException e = assertThrows(ContributionException.class, c::run);
+
+		assertThat(e.getCause() instanceof IllegalStateException, is(true));
+	}
+
+	@Test
+	public void testFirstAndLast()
+	{
+		OrderModule testModule = new OrderModule();
+
+		Injector i = Guice.createInjector(testModule);
+
+		Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+		c.run();
+
+		assertThat(testModule.calls.get(0), is("first"));
+		assertThat(testModule.calls.get(4), is("last"));
+		assertThat(testModule.calls.indexOf("b") < testModule.calls.indexOf("a"), is(true));
+		assertThat(testModule.calls.size(), is(5));
+	}
+
+	@Test
+	public void testParallel()
+	{
+		ParallelModule testModule = new ParallelModule();
+
+		Injector i = Guice.createInjector(testModule);
+
+		Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+		c.run();
+
+		assertThat(testModule.calls.size(), is(3));
+		assertThat(testModule.calls.get(2), is("c"));
+	}
+
+	@Test
+	public void testParallelFailure()
+	{
+		ParallelFailingModule testModule = new ParallelFailingModule();
+		try
+		{
+			Injector i = Guice.createInjector(testModule);
+
+			Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+			ContributionException e = assertThrows(ContributionException.class, c::run);
+
+			assertThat(e.getCause().getMessage(), is("a"));
+			assertThat(e.getSuppressed().length, is(1));
+			assertThat(e.getSuppressed()[0].getCause().getMessage(), is("b"));
+		}
+		finally
+		{
+			testModule.executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testInterceptor()
+	{
+		TestModule4 testModule = new TestModule4();
+		List<String> intercepted = new ArrayList<>();
+
+		Injector i = Guice.createInjector(testModule, new AbstractModule()
+		{
+			@Override
+			protected void configure()
+			{
+				bind(ContributionInterceptor.class).toInstance((annotation, method, invocation) -> {
+					intercepted.add(annotation.getSimpleName() + "." + method.getName());
+					invocation.run();
+				});
+			}
+		});
+
+		Contributions c = i.getInstance(Key.get(Contributions.class, TestAnnotation.class));
+		c.run();
+
+		assertThat(testModule.calls, is(2));
+		assertThat(intercepted.size(), is(2));
+		assertThat(intercepted.contains("TestAnnotation.first"), is(true));
+	}
+
 	@Test
 	public void testWithExtraBinding()
 	{
@@ -138,6 +249,175 @@ public class ContributionsTest
 		}
 	}
 
+	public static class TestModule4
+		extends AbstractModule
+	{
+		private int calls;
+
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(this.binder(), this)
+				.bindContributions(TestAnnotation.class);
+		}
+
+		@TestAnnotation
+		public void first()
+		{
+			calls++;
+		}
+
+		@TestAnnotation
+		public void second()
+		{
+			calls++;
+		}
+	}
+
+	public static class OrderModule
+		extends AbstractModule
+	{
+		private final List<String> calls = new ArrayList<>();
+
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(this.binder(), this)
+				.bindContributions(TestAnnotation.class);
+		}
+
+		@TestAnnotation
+		@Order("last")
+		public void last()
+		{
+			calls.add("last");
+		}
+
+		@TestAnnotation
+		@Named("a")
+		public void a()
+		{
+			calls.add("a");
+		}
+
+		@TestAnnotation
+		@Before("a")
+		public void b()
+		{
+			calls.add("b");
+		}
+
+		@TestAnnotation
+		public void c()
+		{
+			calls.add("c");
+		}
+
+		@TestAnnotation
+		@Order("first")
+		public void first()
+		{
+			calls.add("first");
+		}
+	}
+
+	public static class ParallelModule
+		extends AbstractModule
+	{
+		private final CountDownLatch latch = new CountDownLatch(2);
+		private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(this.binder(), this)
+				.bindParallelContributions(TestAnnotation.class);
+		}
+
+		@TestAnnotation
+		@Named("a")
+		public void a()
+			throws InterruptedException
+		{
+			// Only completes in time if b runs at the same time
+			latch.countDown();
+			assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+			calls.add("a");
+		}
+
+		@TestAnnotation
+		@Named("b")
+		public void b()
+			throws InterruptedException
+		{
+			latch.countDown();
+			assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+			calls.add("b");
+		}
+
+		@TestAnnotation
+		@After({ "a", "b" })
+		public void c()
+		{
+			assertThat(latch.getCount(), is(0l));
+			calls.add("c");
+		}
+	}
+
+	public static class ParallelFailingModule
+		extends AbstractModule
+	{
+		private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(this.binder(), this)
+				.bindParallelContributions(TestAnnotation.class, executor);
+		}
+
+		@TestAnnotation
+		@Named("a")
+		public void a()
+			throws InterruptedException
+		{
+			// Fail after b to verify that the resolved order is used
+			Thread.sleep(50);
+			throw new IllegalStateException("a");
+		}
+
+		@TestAnnotation
+		@Named("b")
+		public void b()
+		{
+			throw new IllegalStateException("b");
+		}
+
+		@TestAnnotation
+		@After({ "a", "b" })
+		public void c()
+		{
+			throw new AssertionError("Should not run");
+		}
+	}
+
+	public static class FailingModule
+		extends AbstractModule
+	{
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(this.binder(), this)
+				.bindContributions(TestAnnotation.class);
+		}
+
+		@TestAnnotation
+		public void fail()
+		{
+			throw new IllegalStateException("Failed");
+		}
+	}
+
 	@Singleton
 	public static class TestSingleton
 	{
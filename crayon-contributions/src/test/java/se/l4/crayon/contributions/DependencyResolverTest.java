@@ -2,7 +2,10 @@ package se.l4.crayon.contributions;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.jupiter.api.Test;
@@ -48,4 +51,81 @@ public class DependencyResolverTest
 
 		assertThat(result.toArray(), is(new Object[] { D, B }));
 	}
+
+	@Test
+	public void testLevels()
+	{
+		DependencyResolver<String> resolver = new DependencyResolver<String>();
+
+		resolver.addDependency("A", "B");
+		resolver.addDependency("C", "D");
+		resolver.addDependency("B", "D");
+		resolver.addDependency("C", "A");
+		resolver.add("E");
+
+		List<Set<String>> result = resolver.getLevels();
+
+		assertThat(result.size(), is(4));
+		assertThat(result.get(0).toArray(), is(new Object[] { "D", "E" }));
+		assertThat(result.get(1).toArray(), is(new Object[] { "B" }));
+		assertThat(result.get(2).toArray(), is(new Object[] { "A" }));
+		assertThat(result.get(3).toArray(), is(new Object[] { "C" }));
+	}
+
+	@Test
+	public void testCycle()
+	{
+		DependencyResolver<String> resolver = new DependencyResolver<String>();
+
+		resolver.addDependency("A", "B");
+		resolver.addDependency("B", "C");
+		resolver.addDependency("C", "A");
+
+		ContributionException e = assertThrows(ContributionException.class, resolver::getOrder);
+		assertThat(e.getMessage(), is("Cyclic dependency: A -> B -> C -> A"));
+	}
+
+	@Test
+	public void testSelfDependency()
+	{
+		DependencyResolver<String> resolver = new DependencyResolver<String>();
+
+		assertThrows(ContributionException.class, () -> resolver.addDependency("A", "A"));
+	}
+
+	@Test
+	public void testStableOrder()
+	{
+		DependencyResolver<String> resolver = new DependencyResolver<String>();
+
+		resolver.add("E");
+		resolver.add("B");
+		resolver.add("D");
+		resolver.addDependency("A", "C");
+		resolver.addDependency("C", "B");
+
+		Set<String> result = resolver.getOrder();
+
+		assertThat(result.toArray(), is(new Object[] { "E", "B", "D", "C", "A" }));
+	}
+
+	@Test
+	public void testDeepChain()
+	{
+		int size = 100_000;
+		DependencyResolver<Integer> resolver = new DependencyResolver<Integer>();
+		for(int i=1; i<size; i++)
+		{
+			resolver.addDependency(i, i - 1);
+		}
+
+		Set<Integer> result = resolver.getOrder();
+		assertThat(result.size(), is(size));
+
+		Iterator<Integer> it = result.iterator();
+		for(int i=0; i<size; i++)
+		{
+			assertThat(it.next(), is(i));
+		}
+	}
 }
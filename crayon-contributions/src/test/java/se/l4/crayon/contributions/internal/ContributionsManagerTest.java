@@ -0,0 +1,85 @@
+package se.l4.crayon.contributions.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.List;
+
+import javax.inject.Qualifier;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Named;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.crayon.contributions.After;
+import se.l4.crayon.contributions.Contributions;
+import se.l4.crayon.contributions.ContributionsBinder;
+
+public class ContributionsManagerTest
+{
+	@Test
+	public void testInvokersResolvedOnce()
+	{
+		Injector injector = Guice.createInjector(new TestModule());
+		ContributionsManager manager = injector.getInstance(ContributionsManager.class);
+
+		List<ContributionInvoker> invokers = manager.getInvokers(TestAnnotation.class);
+		assertThat(invokers.size(), is(2));
+
+		// Running via any instance of the contributions reuses the order
+		injector.getInstance(Key.get(Contributions.class, TestAnnotation.class)).run();
+		injector.getInstance(Key.get(Contributions.class, TestAnnotation.class)).run();
+
+		assertThat(manager.getInvokers(TestAnnotation.class), sameInstance(invokers));
+	}
+
+	@Test
+	public void testInvokerLevelsResolvedOnce()
+	{
+		Injector injector = Guice.createInjector(new TestModule());
+		ContributionsManager manager = injector.getInstance(ContributionsManager.class);
+
+		List<List<ContributionInvoker>> levels = manager.getInvokerLevels(TestAnnotation.class);
+		assertThat(levels.size(), is(2));
+
+		assertThat(manager.getInvokerLevels(TestAnnotation.class), sameInstance(levels));
+	}
+
+	public static class TestModule
+		extends AbstractModule
+	{
+		@Override
+		protected void configure()
+		{
+			ContributionsBinder.newBinder(binder(), this)
+				.bindContributions(TestAnnotation.class);
+		}
+
+		@TestAnnotation
+		@Named("first")
+		public void first()
+		{
+		}
+
+		@TestAnnotation
+		@After("first")
+		public void second()
+		{
+		}
+	}
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Documented
+	@Qualifier
+	public @interface TestAnnotation
+	{
+	}
+}
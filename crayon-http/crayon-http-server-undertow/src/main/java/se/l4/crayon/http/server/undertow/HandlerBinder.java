@@ -0,0 +1,141 @@
+package se.l4.crayon.http.server.undertow;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import com.google.inject.Provider;
+import com.google.inject.Scopes;
+
+import io.undertow.server.HttpHandler;
+
+/**
+ * Binder for raw Undertow {@link HttpHandler}s. Handlers are mounted ahead
+ * of the servlet deployment, so requests to them skip the servlet container
+ * and all filters.
+ *
+ * <p>
+ * A path ending with {@code /*} matches the path and everything below it,
+ * other paths must match exactly:
+ * <pre>
+ * binder.serve("/metrics").with(MetricsHandler.class);
+ * binder.serve("/assets/*").blocking().with(AssetHandler.class);
+ * </pre>
+ *
+ * <p>
+ * Handlers run on the IO thread unless bound as {@link HandlerBuilder#blocking()},
+ * so they must not block.
+ */
+public interface HandlerBinder
+{
+	/**
+	 * Start binding of a handler on the given paths.
+	 *
+	 * @param paths
+	 * @return
+	 */
+	HandlerBuilder serve(String... paths);
+
+	/**
+	 * Start binding of a handler on the given paths.
+	 *
+	 * @param paths
+	 * @return
+	 */
+	HandlerBuilder serve(Iterable<String> paths);
+
+	/**
+	 * Start binding of static resources on the given paths. Resources are
+	 * served with {@code ETag} and {@code Last-Modified} handling, small
+	 * files are cached in memory and large files are sent without copying
+	 * them via user space. If a {@code .br} or {@code .gz} variant of a
+	 * resource exists it is served to clients that accept it.
+	 *
+	 * <pre>
+	 * binder.resources("/static/*").from(Paths.get("public"));
+	 * binder.resources("/assets/*").fromClasspath("web/assets");
+	 * </pre>
+	 *
+	 * @param paths
+	 * @return
+	 */
+	ResourceBuilder resources(String... paths);
+
+	/**
+	 * Builder for static resources.
+	 */
+	interface ResourceBuilder
+	{
+		/**
+		 * Set how long clients may cache resources, sent as
+		 * {@code Cache-Control: max-age}.
+		 *
+		 * @param time
+		 * @return
+		 */
+		ResourceBuilder cacheTime(Duration time);
+
+		/**
+		 * Serve resources from the given directory. This method must be
+		 * called last as it will register the definition.
+		 *
+		 * @param directory
+		 */
+		void from(Path directory);
+
+		/**
+		 * Serve resources from the classpath of this module. This method
+		 * must be called last as it will register the definition.
+		 *
+		 * @param prefix
+		 *   the package path of the resources, such as {@code web/assets}
+		 */
+		void fromClasspath(String prefix);
+
+		/**
+		 * Serve resources from the given class loader. This method must be
+		 * called last as it will register the definition.
+		 *
+		 * @param loader
+		 * @param prefix
+		 *   the package path of the resources, such as {@code web/assets}
+		 */
+		void fromClasspath(ClassLoader loader, String prefix);
+	}
+
+	/**
+	 * Builder for handlers.
+	 */
+	interface HandlerBuilder
+	{
+		/**
+		 * Dispatch requests to a worker thread before invoking the handler,
+		 * for handlers that perform blocking operations.
+		 *
+		 * @return
+		 */
+		HandlerBuilder blocking();
+
+		/**
+		 * Define the handler to bind. This method must be called last as it
+		 * will register the definition. The handler should be scoped as
+		 * {@link Scopes#SINGLETON}.
+		 *
+		 * @param type
+		 */
+		void with(Class<? extends HttpHandler> type);
+
+		/**
+		 * Define a provider to use to get an instance of the handler.
+		 *
+		 * @param provider
+		 */
+		<T extends HttpHandler> void with(Class<T> type, Provider<T> provider);
+
+		/**
+		 * Define an already created instance to use.
+		 *
+		 * @param instance
+		 */
+		void with(HttpHandler instance);
+	}
+}
@@ -0,0 +1,53 @@
+package se.l4.crayon.http.server.undertow;
+
+import com.google.inject.Provider;
+
+import org.eclipse.collections.api.list.ListIterable;
+
+import io.undertow.server.HttpHandler;
+
+/**
+ * Handlers bound via {@link HandlerBinder}.
+ */
+public interface HandlerConfiguration
+{
+	ListIterable<BoundHandler> getHandlers();
+
+	interface BoundHandler
+	{
+		/**
+		 * Get the path of the handler, without any trailing {@code /*}.
+		 *
+		 * @return
+		 */
+		String getPath();
+
+		/**
+		 * Get if the handler matches everything below its path.
+		 *
+		 * @return
+		 */
+		boolean isPrefix();
+
+		/**
+		 * Get if requests should be dispatched to a worker thread.
+		 *
+		 * @return
+		 */
+		boolean isBlocking();
+
+		/**
+		 * Get the class of the handler.
+		 *
+		 * @return
+		 */
+		Class<? extends HttpHandler> getType();
+
+		/**
+		 * Get the provider that creates this handler.
+		 *
+		 * @return
+		 */
+		Provider<? extends HttpHandler> getProvider();
+	}
+}
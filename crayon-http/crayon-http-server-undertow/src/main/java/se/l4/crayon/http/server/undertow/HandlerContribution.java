@@ -0,0 +1,22 @@
+package se.l4.crayon.http.server.undertow;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.google.inject.BindingAnnotation;
+
+/**
+ * Marker for contributions that contribute Undertow handlers via
+ * {@link HandlerBinder}.
+ *
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.PARAMETER })
+@BindingAnnotation
+@Documented
+public @interface HandlerContribution
+{
+}
@@ -0,0 +1,24 @@
+package se.l4.crayon.http.server.undertow;
+
+/**
+ * How servlet requests are dispatched, see {@link UndertowConfig#getDispatch()}.
+ */
+public enum RequestDispatch
+{
+	/**
+	 * Use the worker threads of Undertow.
+	 */
+	WORKER,
+
+	/**
+	 * Use a virtual thread per request, falls back to {@link #WORKER} if the
+	 * JVM does not support virtual threads.
+	 */
+	VIRTUAL,
+
+	/**
+	 * Use the {@link java.util.concurrent.Executor} bound with
+	 * {@code @Named("http-server")}.
+	 */
+	EXECUTOR
+}
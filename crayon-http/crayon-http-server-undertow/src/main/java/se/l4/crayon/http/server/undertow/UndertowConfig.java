@@ -1,23 +1,314 @@
 package se.l4.crayon.http.server.undertow;
 
+import java.util.Arrays;
+import java.util.List;
+
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 
 import se.l4.exobytes.AnnotationSerialization;
 import se.l4.exobytes.Expose;
 
 /**
- * Configuration used with {@link UndertowService}.
+ * Configuration used with {@link UndertowService}, bound to
+ * {@code http.server}. Settings that are {@code 0} or {@code -1} use the
+ * defaults of Undertow.
  */
 @AnnotationSerialization
 public class UndertowConfig
 {
+	/**
+	 * Port to listen to, {@code 0} to pick a free port.
+	 */
 	@Expose
-	@Min(1) @Max(65535)
+	@Min(0) @Max(65535)
 	private int port = 8080;
 
+	/**
+	 * Host or address to listen to.
+	 */
+	@Expose
+	@NotBlank
+	private String host = "0.0.0.0";
+
+	/**
+	 * Number of IO threads, {@code 0} to use one per CPU.
+	 */
+	@Expose
+	@Min(0)
+	private int ioThreads = 0;
+
+	/**
+	 * Number of worker threads used for blocking requests, {@code 0} to use
+	 * eight per IO thread.
+	 */
+	@Expose
+	@Min(0)
+	private int workerThreads = 0;
+
+	/**
+	 * Size of the buffers used for IO in bytes, {@code 0} to pick a size
+	 * based on available memory.
+	 */
+	@Expose
+	@Min(0)
+	private int bufferSize = 0;
+
+	/**
+	 * If IO buffers should be allocated outside of the heap.
+	 */
+	@Expose
+	private boolean directBuffers = true;
+
+	/**
+	 * Maximum size of a request body in bytes, {@code -1} for no limit.
+	 */
+	@Expose
+	@Min(-1)
+	private long maxEntitySize = -1;
+
+	/**
+	 * Maximum number of connections waiting to be accepted.
+	 */
+	@Expose
+	@Min(1)
+	private int backlog = 1000;
+
+	/**
+	 * If TCP keep-alive should be enabled for connections.
+	 */
+	@Expose
+	private boolean keepAlive = true;
+
+	/**
+	 * Time in milliseconds a connection can be idle before it is closed,
+	 * {@code -1} to never close idle connections.
+	 */
+	@Expose
+	@Min(-1)
+	private int idleTimeout = -1;
+
+	/**
+	 * If HTTP/2 should be enabled.
+	 */
+	@Expose
+	private boolean http2 = true;
+
+	/**
+	 * How servlet requests are dispatched, one of the values of
+	 * {@link RequestDispatch}.
+	 */
+	@Expose
+	@Pattern(regexp = "WORKER|VIRTUAL|EXECUTOR")
+	private String dispatch = "WORKER";
+
+	/**
+	 * If the request should be kept when Reactor pipelines switch threads,
+	 * via a hook that is installed while the server is running.
+	 */
+	@Expose
+	private boolean reactorRequestContext = false;
+
+	/**
+	 * Total memory in bytes used to cache small static resources, {@code 0}
+	 * to disable the cache.
+	 */
+	@Expose
+	@Min(0)
+	private int resourceCacheSize = 10 * 1024 * 1024;
+
+	/**
+	 * Largest static resource in bytes that is cached in memory.
+	 */
+	@Expose
+	@Min(0)
+	private long resourceCacheMaxFileSize = 64 * 1024;
+
+	/**
+	 * Time in milliseconds cached static resources are kept before checking
+	 * them for changes, {@code -1} to keep them until evicted.
+	 */
+	@Expose
+	@Min(-1)
+	private int resourceCacheMaxAge = 60_000;
+
+	/**
+	 * Size in bytes above which static files are sent using zero-copy
+	 * transfers.
+	 */
+	@Expose
+	@Min(0)
+	private long resourceTransferMinSize = 16 * 1024;
+
+	/**
+	 * If responses should be compressed using gzip or deflate for clients
+	 * that accept it.
+	 */
+	@Expose
+	private boolean compression = false;
+
+	/**
+	 * Level used for compression, from {@code 1} for the fastest to
+	 * {@code 9} for the smallest output.
+	 */
+	@Expose
+	@Min(1) @Max(9)
+	private int compressionLevel = 6;
+
+	/**
+	 * Smallest response in bytes that is compressed. Responses without a
+	 * known length are always compressed.
+	 */
+	@Expose
+	@Min(0)
+	private long compressionMinSize = 1024;
+
+	/**
+	 * Content types that are compressed.
+	 */
+	@Expose
+	@NotNull
+	private List<String> compressionTypes = Arrays.asList(
+		"text/html",
+		"text/plain",
+		"text/css",
+		"text/javascript",
+		"text/xml",
+		"application/javascript",
+		"application/json",
+		"application/xml",
+		"image/svg+xml"
+	);
+
+	/**
+	 * If readiness and liveness checks should be available.
+	 */
+	@Expose
+	private boolean health = true;
+
+	/**
+	 * Path that readiness and liveness checks are available under, as
+	 * {@code <healthPath>/ready} and {@code <healthPath>/live}.
+	 */
+	@Expose
+	@NotBlank
+	private String healthPath = "/health";
+
 	public int getPort()
 	{
 		return port;
 	}
+
+	public String getHost()
+	{
+		return host;
+	}
+
+	public int getIoThreads()
+	{
+		return ioThreads;
+	}
+
+	public int getWorkerThreads()
+	{
+		return workerThreads;
+	}
+
+	public int getBufferSize()
+	{
+		return bufferSize;
+	}
+
+	public boolean isDirectBuffers()
+	{
+		return directBuffers;
+	}
+
+	public long getMaxEntitySize()
+	{
+		return maxEntitySize;
+	}
+
+	public int getBacklog()
+	{
+		return backlog;
+	}
+
+	public boolean isKeepAlive()
+	{
+		return keepAlive;
+	}
+
+	public int getIdleTimeout()
+	{
+		return idleTimeout;
+	}
+
+	public boolean isHttp2()
+	{
+		return http2;
+	}
+
+	public RequestDispatch getDispatch()
+	{
+		return RequestDispatch.valueOf(dispatch);
+	}
+
+	public boolean isReactorRequestContext()
+	{
+		return reactorRequestContext;
+	}
+
+	public int getResourceCacheSize()
+	{
+		return resourceCacheSize;
+	}
+
+	public long getResourceCacheMaxFileSize()
+	{
+		return resourceCacheMaxFileSize;
+	}
+
+	public int getResourceCacheMaxAge()
+	{
+		return resourceCacheMaxAge;
+	}
+
+	public long getResourceTransferMinSize()
+	{
+		return resourceTransferMinSize;
+	}
+
+	public boolean isCompression()
+	{
+		return compression;
+	}
+
+	public int getCompressionLevel()
+	{
+		return compressionLevel;
+	}
+
+	public long getCompressionMinSize()
+	{
+		return compressionMinSize;
+	}
+
+	public List<String> getCompressionTypes()
+	{
+		return compressionTypes;
+	}
+
+	public boolean isHealth()
+	{
+		return health;
+	}
+
+	public String getHealthPath()
+	{
+		return healthPath;
+	}
 }
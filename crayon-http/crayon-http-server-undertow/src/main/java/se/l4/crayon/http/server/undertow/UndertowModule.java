@@ -1,13 +1,28 @@
 package se.l4.crayon.http.server.undertow;
 
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 
+import se.l4.crayon.contributions.Contributions;
+import se.l4.crayon.http.server.undertow.internal.HandlerBinderImpl;
+import se.l4.crayon.http.server.undertow.internal.HealthHandler;
 import se.l4.crayon.module.CrayonModule;
 import se.l4.crayon.services.ServiceCollector;
 import se.l4.crayon.services.ServiceContribution;
+import se.l4.crayon.services.ServiceHealth;
 
 /**
- * Module that provides a HTTP server powered by Undertow.
+ * Module that provides a HTTP server powered by Undertow. Raw handlers can
+ * be contributed using {@link HandlerBinder} and {@link HandlerContribution}:
+ *
+ * <pre>
+ * {@literal @}HandlerContribution
+ * public void contributeHandlers(HandlerBinder binder) {
+ *   binder.serve("/metrics").with(MetricsHandler.class);
+ * }
+ * </pre>
  */
 public class UndertowModule
 	extends CrayonModule
@@ -18,6 +33,23 @@ public class UndertowModule
 		bindConfig(UndertowConfig.class)
 			.withDefault(new UndertowConfig())
 			.to("http.server");
+
+		bindContributions(HandlerContribution.class);
+	}
+
+	@Provides
+	@Singleton
+	public HandlerConfiguration provideHandlerConfiguration(
+		Injector injector,
+		UndertowConfig config,
+		@HandlerContribution Contributions contributions
+	)
+	{
+		HandlerBinderImpl binder = new HandlerBinderImpl(injector, config);
+
+		contributions.run(b -> b.bind(HandlerBinder.class).toInstance(binder));
+
+		return binder.toConfig();
 	}
 
 	@ServiceContribution
@@ -29,4 +61,18 @@ public class UndertowModule
 	{
 		collector.add(service);
 	}
+
+	@HandlerContribution
+	@Named("health")
+	public void contributeHealth(
+		HandlerBinder binder,
+		UndertowConfig config,
+		ServiceHealth health
+	)
+	{
+		if(! config.isHealth()) return;
+
+		binder.serve(config.getHealthPath() + "/*")
+			.with(new HealthHandler(health));
+	}
 }
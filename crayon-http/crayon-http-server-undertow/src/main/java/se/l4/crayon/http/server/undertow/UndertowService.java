@@ -1,16 +1,36 @@
 package se.l4.crayon.http.server.undertow;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
 import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.Options;
 
 import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpHandler;
 import io.undertow.server.handlers.PathHandler;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.DeflateEncodingProvider;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
 import io.undertow.servlet.Servlets;
 import io.undertow.servlet.api.DeploymentInfo;
 import io.undertow.servlet.api.DeploymentManager;
@@ -20,26 +40,59 @@ import io.undertow.servlet.api.InstanceHandle;
 import io.undertow.servlet.api.ServletInfo;
 import io.undertow.servlet.util.ImmediateInstanceHandle;
 import reactor.core.publisher.Mono;
+import se.l4.crayon.http.server.undertow.internal.CompressionPredicate;
+import se.l4.crayon.http.server.undertow.internal.HandlerBinderImpl;
+import se.l4.crayon.http.server.undertow.internal.WebScopesSetup;
+import se.l4.crayon.http.servlet.RequestContext;
 import se.l4.crayon.http.servlet.ServletConfiguration;
+import se.l4.crayon.http.servlet.WebScopes;
+import se.l4.crayon.module.VirtualThreads;
 import se.l4.crayon.services.ManagedService;
 import se.l4.crayon.services.RunningService;
 import se.l4.crayon.services.ServiceException;
 
+/**
+ * Service that runs the HTTP server. Servlets and filters bound via
+ * {@link se.l4.crayon.http.servlet.ServletBinder} are deployed and served
+ * on the address in {@link UndertowConfig}, handlers bound via
+ * {@link HandlerBinder} are served ahead of them.
+ */
 @Singleton
 public class UndertowService
 	implements ManagedService
 {
+	private static final Logger logger = LoggerFactory.getLogger(UndertowService.class);
+
 	private final ServletConfiguration servletConfig;
 	private final UndertowConfig config;
+	private final HandlerConfiguration handlerConfig;
+
+	private volatile InetSocketAddress boundAddress;
+
+	private Executor executor;
 
 	@Inject
 	public UndertowService(
 		ServletConfiguration servletConfig,
-		UndertowConfig config
+		UndertowConfig config,
+		HandlerConfiguration handlerConfig
 	)
 	{
 		this.config = config;
 		this.servletConfig = servletConfig;
+		this.handlerConfig = handlerConfig;
+	}
+
+	/**
+	 * Set the executor used when {@link UndertowConfig#getDispatch()} is
+	 * {@link RequestDispatch#EXECUTOR}.
+	 *
+	 * @param executor
+	 */
+	@Inject(optional = true)
+	public void setExecutor(@Named("http-server") Executor executor)
+	{
+		this.executor = executor;
 	}
 
 	@Override
@@ -51,40 +104,283 @@ public class UndertowService
 				.setDefaultEncoding("UTF-8")
 				.setContextPath("/")
 				.setDeploymentName("main")
-				.setClassLoader(getClass().getClassLoader());
+				.setClassLoader(getClass().getClassLoader())
+				.addThreadSetupAction(new WebScopesSetup());
+
+			Resources resources = new Resources(servletBuilder);
+			resources.owned = configureDispatch(servletBuilder);
+
+			try
+			{
+				addFilters(servletBuilder);
+				addServlets(servletBuilder);
+
+				DeploymentManager manager = Servlets.defaultContainer()
+					.addDeployment(servletBuilder);
+
+				resources.manager = manager;
+				manager.deploy();
+				WebScopes.setContext(manager.getDeployment().getServletContext());
+
+				PathHandler path = Handlers.path();
+				try
+				{
+					path.addPrefixPath("/", manager.start());
+				}
+				catch(ServletException e)
+				{
+					throw new ServiceException("Unable to create servlet environment; " + e.getMessage(), e);
+				}
+
+				addHandlers(path, resources.closeables);
+
+				Undertow server = createBuilder()
+					.setHandler(createRootHandler(path))
+					.build();
+
+				resources.server = server;
+				server.start();
+
+				if(config.isReactorRequestContext())
+				{
+					RequestContext.installReactorHook();
+					resources.reactorHook = true;
+				}
+
+				boundAddress = server.getListenerInfo().stream()
+					.map(Undertow.ListenerInfo::getAddress)
+					.filter(InetSocketAddress.class::isInstance)
+					.map(InetSocketAddress.class::cast)
+					.findFirst()
+					.orElse(null);
+
+				logger.info("HTTP server listening on {}", boundAddress);
+
+				return RunningService.stoppable(() -> stop(resources));
+			}
+			catch(RuntimeException e)
+			{
+				// Release what was created before the failure, such as when the port is in use
+				try
+				{
+					stop(resources);
+				}
+				catch(RuntimeException e2)
+				{
+					e.addSuppressed(e2);
+				}
 
-			addFilters(servletBuilder);
-			addServlets(servletBuilder);
+				throw e;
+			}
+		});
+	}
+
+	/**
+	 * Stop the server and release everything created when it was started.
+	 * Parts that were never created are skipped, so this can be used both
+	 * when the server stops and when it fails to start.
+	 *
+	 * @param resources
+	 */
+	private void stop(Resources resources)
+	{
+		if(resources.server != null)
+		{
+			resources.server.stop();
+		}
 
-			DeploymentManager manager = Servlets.defaultContainer()
-				.addDeployment(servletBuilder);
+		boundAddress = null;
 
-			manager.deploy();
+		if(resources.reactorHook)
+		{
+			RequestContext.removeReactorHook();
+		}
 
-			PathHandler path = Handlers.path();
+		for(Closeable closeable : resources.closeables)
+		{
 			try
 			{
-				path.addPrefixPath("/", manager.start());
+				closeable.close();
 			}
-			catch(ServletException e)
+			catch(IOException e)
 			{
-				throw new ServiceException("Unable to create servlet environment; " + e.getMessage(), e);
+				logger.warn("Could not close {}; {}", closeable, e.getMessage(), e);
 			}
+		}
 
-			Undertow.Builder builder = Undertow.builder()
-				.setServerOption(UndertowOptions.ENABLE_HTTP2, true)
-				.setHandler(path)
-				.addHttpListener(config.getPort(), "0.0.0.0");
+		try
+		{
+			if(resources.manager != null)
+			{
+				resources.manager.stop();
+				resources.manager.undeploy();
+				Servlets.defaultContainer().removeDeployment(resources.info);
+				WebScopes.setContext(null);
+			}
+		}
+		catch(ServletException e)
+		{
+			throw new ServiceException("Unable to stop servlet environment; " + e.getMessage(), e);
+		}
+		finally
+		{
+			if(resources.owned != null)
+			{
+				resources.owned.shutdown();
+			}
+		}
+	}
 
-			Undertow server = builder.build();
-			return RunningService.stoppable(server::stop);
-		});
+	/**
+	 * Configure how servlet requests are dispatched.
+	 *
+	 * @param info
+	 * @return
+	 *   executor created for the deployment that should be shutdown when
+	 *   the server stops, or {@code null}
+	 */
+	private ExecutorService configureDispatch(DeploymentInfo info)
+	{
+		switch(config.getDispatch())
+		{
+			case VIRTUAL:
+				Optional<ExecutorService> virtual = VirtualThreads.newExecutor();
+				if(! virtual.isPresent())
+				{
+					logger.warn("Virtual threads are not supported by this JVM, dispatching requests to worker threads");
+					return null;
+				}
+
+				info.setExecutor(virtual.get());
+				info.setAsyncExecutor(virtual.get());
+				return virtual.get();
+			case EXECUTOR:
+				if(executor == null)
+				{
+					throw new ServiceException("Requests should be dispatched to an executor, but no Executor is bound with @Named(\"http-server\")");
+				}
+
+				info.setExecutor(executor);
+				info.setAsyncExecutor(executor);
+				return null;
+			default:
+				// Use the worker threads of Undertow
+				return null;
+		}
+	}
+
+	/**
+	 * Create the handler that receives all requests, wrapping the handler
+	 * for paths with compression if enabled. Responses are compressed while
+	 * they are written, so nothing is buffered.
+	 *
+	 * @param path
+	 * @return
+	 */
+	private HttpHandler createRootHandler(PathHandler path)
+	{
+		if(! config.isCompression())
+		{
+			return path;
+		}
+
+		Predicate predicate = new CompressionPredicate(
+			config.getCompressionTypes(),
+			config.getCompressionMinSize()
+		);
+
+		ContentEncodingRepository encodings = new ContentEncodingRepository()
+			.addEncodingHandler("gzip", new GzipEncodingProvider(config.getCompressionLevel()), 100, predicate)
+			.addEncodingHandler("deflate", new DeflateEncodingProvider(config.getCompressionLevel()), 50, predicate);
+
+		return new EncodingHandler(path, encodings);
+	}
+
+	/**
+	 * Create the builder for the server, applying the tuning from the
+	 * configuration.
+	 *
+	 * @return
+	 */
+	private Undertow.Builder createBuilder()
+	{
+		Undertow.Builder builder = Undertow.builder()
+			.addHttpListener(config.getPort(), config.getHost())
+			.setDirectBuffers(config.isDirectBuffers())
+			.setServerOption(UndertowOptions.ENABLE_HTTP2, config.isHttp2())
+			.setSocketOption(Options.BACKLOG, config.getBacklog())
+			.setSocketOption(Options.KEEP_ALIVE, config.isKeepAlive());
+
+		if(config.getIoThreads() > 0)
+		{
+			builder.setIoThreads(config.getIoThreads());
+		}
+
+		if(config.getWorkerThreads() > 0)
+		{
+			builder.setWorkerThreads(config.getWorkerThreads());
+		}
+
+		if(config.getBufferSize() > 0)
+		{
+			builder.setBufferSize(config.getBufferSize());
+		}
+
+		if(config.getMaxEntitySize() >= 0)
+		{
+			builder.setServerOption(UndertowOptions.MAX_ENTITY_SIZE, config.getMaxEntitySize());
+		}
+
+		if(config.getIdleTimeout() >= 0)
+		{
+			builder.setServerOption(UndertowOptions.IDLE_TIMEOUT, config.getIdleTimeout());
+		}
+
+		return builder;
+	}
+
+	/**
+	 * Get the address the server is listening to.
+	 *
+	 * @return
+	 *   the bound address, or empty if the server is not running
+	 */
+	public Optional<InetSocketAddress> getBoundAddress()
+	{
+		return Optional.ofNullable(boundAddress);
 	}
 
 	@Override
 	public String toString()
 	{
-		return "Undertow HTTP server, port " + config.getPort();
+		InetSocketAddress address = boundAddress;
+		return "Undertow HTTP server, " + (address == null
+			? "port " + config.getPort()
+			: "listening on " + address);
+	}
+
+	/**
+	 * Mount all of the handlers bound via {@link HandlerBinder}. Exact paths
+	 * and longer prefixes are matched before the servlet deployment mounted
+	 * at {@code /}, so these requests skip the servlet container.
+	 *
+	 * @param path
+	 * @param closeables
+	 *   list that receives providers of handlers that should be closed when
+	 *   the server stops
+	 */
+	private void addHandlers(PathHandler path, List<Closeable> closeables)
+	{
+		for(HandlerConfiguration.BoundHandler bound : handlerConfig.getHandlers())
+		{
+			Provider<? extends HttpHandler> provider = bound.getProvider();
+			if(provider instanceof Closeable && ! closeables.contains(provider))
+			{
+				closeables.add((Closeable) provider);
+			}
+
+			HandlerBinderImpl.mount(path, bound);
+		}
 	}
 
 	/**
@@ -110,11 +406,7 @@ public class UndertowService
 
 			for(String path : servlet.getUrlPatterns())
 			{
-				info.addFilterServletNameMapping(
-					servlet.getName(),
-					path,
-					DispatcherType.REQUEST
-				);
+				servletInfo.addMapping(path);
 			}
 		}
 	}
@@ -145,7 +437,7 @@ public class UndertowService
 			{
 				for(DispatcherType dt : filter.getDispatcherTypes())
 				{
-					info.addFilterServletNameMapping(
+					info.addFilterUrlMapping(
 						filter.getName(),
 						path,
 						dt
@@ -155,6 +447,28 @@ public class UndertowService
 		}
 	}
 
+	/**
+	 * What has been created while starting the server, released by
+	 * {@link UndertowService#stop(Resources)}.
+	 */
+	private static class Resources
+	{
+		private final DeploymentInfo info;
+		private final List<Closeable> closeables;
+
+		private ExecutorService owned;
+		private DeploymentManager manager;
+		private Undertow server;
+		private boolean reactorHook;
+
+		public Resources(DeploymentInfo info)
+		{
+			this.info = info;
+
+			closeables = new ArrayList<>();
+		}
+	}
+
 	private static class ProviderInstanceFactory<T>
 		implements InstanceFactory<T>
 	{
@@ -0,0 +1,78 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import java.util.Locale;
+
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.set.ImmutableSet;
+
+import io.undertow.predicate.Predicate;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+
+/**
+ * {@link Predicate} used to decide if a response should be compressed. It is
+ * evaluated when the response starts, so the headers set by the handler or
+ * servlet are available. Responses are compressed if their content type is
+ * in the allowed set and they are either streamed without a known length or
+ * at least as large as the minimum size.
+ */
+public class CompressionPredicate
+	implements Predicate
+{
+	private final ImmutableSet<String> types;
+	private final long minSize;
+
+	public CompressionPredicate(Iterable<String> types, long minSize)
+	{
+		this.types = Sets.immutable.withAll(types);
+		this.minSize = minSize;
+	}
+
+	@Override
+	public boolean resolve(HttpServerExchange exchange)
+	{
+		HeaderMap headers = exchange.getResponseHeaders();
+		if(headers.contains(Headers.CONTENT_ENCODING))
+		{
+			// Already encoded, such as precompressed static resources
+			return false;
+		}
+
+		String length = headers.getFirst(Headers.CONTENT_LENGTH);
+		if(length != null && parseLength(length) < minSize)
+		{
+			return false;
+		}
+
+		String type = headers.getFirst(Headers.CONTENT_TYPE);
+		if(type == null)
+		{
+			return false;
+		}
+
+		int idx = type.indexOf(';');
+		if(idx >= 0)
+		{
+			type = type.substring(0, idx);
+		}
+
+		return types.contains(type.trim().toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Parse the value of {@code Content-Length}. A malformed value is treated
+	 * as an unknown length.
+	 */
+	private static long parseLength(String length)
+	{
+		try
+		{
+			return Long.parseLong(length.trim());
+		}
+		catch(NumberFormatException e)
+		{
+			return Long.MAX_VALUE;
+		}
+	}
+}
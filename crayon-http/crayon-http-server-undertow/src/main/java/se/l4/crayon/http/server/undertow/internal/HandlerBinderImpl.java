@@ -0,0 +1,250 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+import org.eclipse.collections.api.factory.Lists;
+import org.eclipse.collections.api.list.ImmutableList;
+import org.eclipse.collections.api.list.ListIterable;
+import org.eclipse.collections.api.list.MutableList;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.BlockingHandler;
+import io.undertow.server.handlers.PathHandler;
+import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.server.handlers.resource.ResourceManager;
+import se.l4.crayon.http.server.undertow.HandlerBinder;
+import se.l4.crayon.http.server.undertow.HandlerConfiguration;
+import se.l4.crayon.http.server.undertow.HandlerConfiguration.BoundHandler;
+import se.l4.crayon.http.server.undertow.UndertowConfig;
+
+public class HandlerBinderImpl
+	implements HandlerBinder
+{
+	private final Injector injector;
+	private final UndertowConfig config;
+	private final MutableList<BoundHandler> handlers;
+
+	public HandlerBinderImpl(Injector injector, UndertowConfig config)
+	{
+		this.injector = injector;
+		this.config = config;
+
+		handlers = Lists.mutable.empty();
+	}
+
+	@Override
+	public HandlerBuilder serve(String... paths)
+	{
+		return serve(Lists.immutable.of(paths));
+	}
+
+	@Override
+	public HandlerBuilder serve(Iterable<String> paths)
+	{
+		return new HandlerBuilderImpl(Lists.immutable.withAll(paths), false);
+	}
+
+	@Override
+	public ResourceBuilder resources(String... paths)
+	{
+		return new ResourceBuilderImpl(Lists.immutable.of(paths), null);
+	}
+
+	/**
+	 * Mount a bound handler. Exact paths only match themselves while
+	 * prefixes match the path and everything below it.
+	 *
+	 * @param path
+	 * @param bound
+	 */
+	public static void mount(PathHandler path, BoundHandler bound)
+	{
+		HttpHandler handler = bound.getProvider().get();
+		if(bound.isBlocking())
+		{
+			handler = new BlockingHandler(handler);
+		}
+
+		if(bound.isPrefix())
+		{
+			path.addPrefixPath(bound.getPath(), handler);
+		}
+		else
+		{
+			path.addExactPath(bound.getPath(), handler);
+		}
+	}
+
+	public HandlerConfiguration toConfig()
+	{
+		ImmutableList<BoundHandler> result = handlers.toImmutable();
+		return new HandlerConfiguration()
+		{
+			@Override
+			public ListIterable<BoundHandler> getHandlers()
+			{
+				return result;
+			}
+		};
+	}
+
+	private class ResourceBuilderImpl
+		implements ResourceBuilder
+	{
+		private final ImmutableList<String> paths;
+		private final Duration cacheTime;
+
+		public ResourceBuilderImpl(ImmutableList<String> paths, Duration cacheTime)
+		{
+			this.paths = paths;
+			this.cacheTime = cacheTime;
+		}
+
+		@Override
+		public ResourceBuilder cacheTime(Duration time)
+		{
+			return new ResourceBuilderImpl(paths, time);
+		}
+
+		@Override
+		public void from(Path directory)
+		{
+			register(() -> ResourceHandlers.directory(directory, config));
+		}
+
+		@Override
+		public void fromClasspath(String prefix)
+		{
+			fromClasspath(HandlerBinderImpl.class.getClassLoader(), prefix);
+		}
+
+		@Override
+		public void fromClasspath(ClassLoader loader, String prefix)
+		{
+			register(() -> ResourceHandlers.classpath(loader, prefix));
+		}
+
+		private void register(Supplier<ResourceManager> resources)
+		{
+			// Resources are served without blocking when cached, the handler dispatches itself otherwise
+			new HandlerBuilderImpl(paths, false)
+				.with(ResourceHandler.class, new ResourceHandlerProvider(resources, cacheTime, config));
+		}
+	}
+
+	private class HandlerBuilderImpl
+		implements HandlerBuilder
+	{
+		private final ImmutableList<String> paths;
+		private final boolean blocking;
+
+		public HandlerBuilderImpl(ImmutableList<String> paths, boolean blocking)
+		{
+			this.paths = paths;
+			this.blocking = blocking;
+		}
+
+		@Override
+		public HandlerBuilder blocking()
+		{
+			return new HandlerBuilderImpl(paths, true);
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void with(Class<? extends HttpHandler> type)
+		{
+			Provider<? extends HttpHandler> provider = injector.getProvider(type);
+			with((Class) type, provider);
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public void with(HttpHandler instance)
+		{
+			with((Class) instance.getClass(), () -> instance);
+		}
+
+		@Override
+		public <T extends HttpHandler> void with(Class<T> type, Provider<T> provider)
+		{
+			for(String path : paths)
+			{
+				boolean prefix = path.endsWith("/*");
+				handlers.add(new BoundHandlerImpl(
+					prefix ? path.substring(0, path.length() - 2) : path,
+					prefix,
+					blocking,
+					type,
+					provider
+				));
+			}
+		}
+	}
+
+	private static class BoundHandlerImpl
+		implements BoundHandler
+	{
+		private final String path;
+		private final boolean prefix;
+		private final boolean blocking;
+		private final Class<? extends HttpHandler> type;
+		private final Provider<? extends HttpHandler> provider;
+
+		public BoundHandlerImpl(
+			String path,
+			boolean prefix,
+			boolean blocking,
+			Class<? extends HttpHandler> type,
+			Provider<? extends HttpHandler> provider
+		)
+		{
+			this.path = path.isEmpty() ? "/" : path;
+			this.prefix = prefix;
+			this.blocking = blocking;
+			this.type = type;
+			this.provider = provider;
+		}
+
+		@Override
+		public String getPath()
+		{
+			return path;
+		}
+
+		@Override
+		public boolean isPrefix()
+		{
+			return prefix;
+		}
+
+		@Override
+		public boolean isBlocking()
+		{
+			return blocking;
+		}
+
+		@Override
+		public Class<? extends HttpHandler> getType()
+		{
+			return type;
+		}
+
+		@Override
+		public Provider<? extends HttpHandler> getProvider()
+		{
+			return provider;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "BoundHandler{path=" + path + (prefix ? "/*" : "") + ", type=" + type.getName() + "}";
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import se.l4.crayon.services.ServiceHealth;
+
+/**
+ * Handler for readiness and liveness checks, answers {@code /ready} and
+ * {@code /live} relative to where it is mounted. Runs directly on the IO
+ * thread and only reads the cached {@link ServiceHealth}, the response
+ * bodies are allocated once and shared between requests.
+ */
+public class HealthHandler
+	implements HttpHandler
+{
+	private static final String CONTENT_TYPE = "application/json";
+	private static final String CACHE_CONTROL = "no-store";
+
+	private static final ByteBuffer UP = body("{\"status\":\"UP\"}");
+	private static final ByteBuffer DOWN = body("{\"status\":\"DOWN\"}");
+
+	private final ServiceHealth health;
+
+	public HealthHandler(ServiceHealth health)
+	{
+		this.health = health;
+	}
+
+	private static ByteBuffer body(String value)
+	{
+		byte[] data = value.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+		return buffer.asReadOnlyBuffer();
+	}
+
+	@Override
+	public void handleRequest(HttpServerExchange exchange)
+		throws Exception
+	{
+		boolean ok;
+		switch(exchange.getRelativePath())
+		{
+			case "/ready":
+				ok = health.isReady();
+				break;
+			case "/live":
+				ok = health.isLive();
+				break;
+			default:
+				exchange.setStatusCode(StatusCodes.NOT_FOUND);
+				exchange.endExchange();
+				return;
+		}
+
+		ByteBuffer body = ok ? UP : DOWN;
+
+		exchange.setStatusCode(ok ? StatusCodes.OK : StatusCodes.SERVICE_UNAVAILABLE);
+
+		HeaderMap headers = exchange.getResponseHeaders();
+		headers.put(Headers.CONTENT_TYPE, CONTENT_TYPE);
+		headers.put(Headers.CACHE_CONTROL, CACHE_CONTROL);
+		headers.put(Headers.CONTENT_LENGTH, body.remaining());
+
+		if(Methods.HEAD.equals(exchange.getRequestMethod()))
+		{
+			exchange.endExchange();
+			return;
+		}
+
+		// Duplicate so that the position of the shared buffer is untouched
+		exchange.getResponseSender().send(body.duplicate());
+	}
+}
@@ -0,0 +1,70 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.google.inject.Provider;
+
+import io.undertow.server.handlers.cache.DirectBufferCache;
+import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.server.handlers.resource.ResourceManager;
+import se.l4.crayon.http.server.undertow.UndertowConfig;
+
+/**
+ * Provider of the {@link ResourceHandler} for a single binding of resources.
+ * All paths of the binding share the same handler and cache. The resource
+ * manager is created when the server starts and closed via {@link #close()}
+ * when it stops, the cache is kept between restarts.
+ */
+public class ResourceHandlerProvider
+	implements Provider<ResourceHandler>, Closeable
+{
+	private final Supplier<ResourceManager> resources;
+	private final DirectBufferCache cache;
+	private final Duration cacheTime;
+	private final UndertowConfig config;
+
+	private ResourceManager manager;
+	private ResourceHandler handler;
+
+	public ResourceHandlerProvider(
+		Supplier<ResourceManager> resources,
+		Duration cacheTime,
+		UndertowConfig config
+	)
+	{
+		this.resources = resources;
+		this.cacheTime = cacheTime;
+		this.config = config;
+
+		cache = ResourceHandlers.createCache(config);
+	}
+
+	@Override
+	public synchronized ResourceHandler get()
+	{
+		if(handler == null)
+		{
+			manager = ResourceHandlers.cached(resources.get(), cache, config);
+			handler = ResourceHandlers.create(manager, cacheTime);
+		}
+
+		return handler;
+	}
+
+	@Override
+	public synchronized void close()
+		throws IOException
+	{
+		ResourceManager manager = this.manager;
+		this.manager = null;
+		handler = null;
+
+		if(manager != null)
+		{
+			manager.close();
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Date;
+
+import io.undertow.server.handlers.cache.DirectBufferCache;
+import io.undertow.server.handlers.resource.CachingResourceManager;
+import io.undertow.server.handlers.resource.ClassPathResourceManager;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.PreCompressedResourceSupplier;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceHandler;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.server.handlers.resource.URLResource;
+import io.undertow.util.ETag;
+import se.l4.crayon.http.server.undertow.UndertowConfig;
+
+/**
+ * Creation of {@link ResourceHandler}s for static resources.
+ *
+ * <p>
+ * Resources are wrapped in a {@link CachingResourceManager} that keeps
+ * small resources in an LRU cache of direct buffers, cached resources are
+ * served directly from the IO thread. Every binding has its own cache that
+ * is kept when the server is restarted. Larger files from a directory are
+ * sent with {@link java.nio.channels.FileChannel#transferTo}. Precompressed
+ * variants are picked via {@link PreCompressedResourceSupplier}.
+ */
+public class ResourceHandlers
+{
+	/**
+	 * Size of every slice in the cache, files are stored in one or more
+	 * slices.
+	 */
+	private static final int SLICE_SIZE = 1024;
+	private static final int SLICES_PER_PAGE = 16;
+
+	/**
+	 * Number of resources to keep metadata for.
+	 */
+	private static final int METADATA_CACHE_SIZE = 1024;
+
+	private ResourceHandlers()
+	{
+	}
+
+	/**
+	 * Create a manager for resources in a directory.
+	 *
+	 * @param directory
+	 * @param config
+	 * @return
+	 */
+	public static ResourceManager directory(Path directory, UndertowConfig config)
+	{
+		return PathResourceManager.builder()
+			.setBase(directory)
+			.setTransferMinSize(config.getResourceTransferMinSize())
+			.setETagFunction(ResourceHandlers::etag)
+			.build();
+	}
+
+	/**
+	 * Create a manager for resources on the classpath. Resources get an ETag
+	 * based on their size and when they were last modified.
+	 *
+	 * @param loader
+	 * @param prefix
+	 * @return
+	 */
+	public static ResourceManager classpath(ClassLoader loader, String prefix)
+	{
+		return new ClassPathResources(loader, prefix);
+	}
+
+	/**
+	 * Create the cache used for resources.
+	 *
+	 * @param config
+	 * @return
+	 *   cache, or {@code null} if caching is disabled
+	 */
+	public static DirectBufferCache createCache(UndertowConfig config)
+	{
+		if(config.getResourceCacheSize() <= 0)
+		{
+			return null;
+		}
+
+		return new DirectBufferCache(
+			SLICE_SIZE,
+			SLICES_PER_PAGE,
+			config.getResourceCacheSize()
+		);
+	}
+
+	/**
+	 * Wrap the given resources so that they are cached.
+	 *
+	 * @param resources
+	 * @param cache
+	 *   cache to use, or {@code null} to not cache resources
+	 * @param config
+	 * @return
+	 */
+	public static ResourceManager cached(
+		ResourceManager resources,
+		DirectBufferCache cache,
+		UndertowConfig config
+	)
+	{
+		if(cache == null)
+		{
+			return resources;
+		}
+
+		return new CachingResourceManager(
+			METADATA_CACHE_SIZE,
+			config.getResourceCacheMaxFileSize(),
+			cache,
+			resources,
+			config.getResourceCacheMaxAge()
+		);
+	}
+
+	/**
+	 * Create the handler for the given resources.
+	 *
+	 * @param manager
+	 * @param cacheTime
+	 *   time clients may cache resources, or {@code null} to not send
+	 *   {@code Cache-Control}
+	 * @return
+	 */
+	public static ResourceHandler create(
+		ResourceManager manager,
+		Duration cacheTime
+	)
+	{
+		PreCompressedResourceSupplier supplier = new PreCompressedResourceSupplier(manager)
+			.addEncoding("br", ".br")
+			.addEncoding("gzip", ".gz");
+
+		ResourceHandler handler = new ResourceHandler(supplier)
+			.setDirectoryListingEnabled(false)
+			.setWelcomeFiles("index.html");
+
+		if(cacheTime != null)
+		{
+			handler.setCacheTime((int) cacheTime.getSeconds());
+		}
+
+		return handler;
+	}
+
+	/**
+	 * Create an ETag for a file based on its size and when it was last
+	 * modified.
+	 */
+	private static ETag etag(Path path)
+	{
+		try
+		{
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return etag(attributes.size(), attributes.lastModifiedTime().toMillis());
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+	}
+
+	private static ETag etag(long size, long lastModified)
+	{
+		return new ETag(false, Long.toHexString(size) + "-" + Long.toHexString(lastModified));
+	}
+
+	/**
+	 * Resources on the classpath, with an ETag that
+	 * {@link ClassPathResourceManager} does not provide.
+	 */
+	private static class ClassPathResources
+		extends ClassPathResourceManager
+	{
+		public ClassPathResources(ClassLoader loader, String prefix)
+		{
+			super(loader, prefix);
+		}
+
+		@Override
+		public Resource getResource(String path)
+			throws IOException
+		{
+			Resource resource = super.getResource(path);
+			if(resource instanceof URLResource)
+			{
+				return new ClassPathResource(resource.getUrl(), resource.getPath());
+			}
+
+			return resource;
+		}
+	}
+
+	private static class ClassPathResource
+		extends URLResource
+	{
+		private volatile ETag etag;
+
+		public ClassPathResource(URL url, String path)
+		{
+			super(url, path);
+		}
+
+		@Override
+		public ETag getETag()
+		{
+			ETag current = etag;
+			if(current == null)
+			{
+				Long size = getContentLength();
+				Date lastModified = getLastModified();
+				if(size == null || lastModified == null)
+				{
+					return null;
+				}
+
+				current = etag(size, lastModified.getTime());
+				etag = current;
+			}
+
+			return current;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.undertow.servlet.api.ThreadSetupHandler;
+import io.undertow.servlet.handlers.ServletRequestContext;
+import se.l4.crayon.http.servlet.WebScopes;
+
+/**
+ * {@link ThreadSetupHandler} that makes the current request available to
+ * {@link WebScopes}. Undertow runs thread setup on the thread that invokes
+ * the servlet, so the scopes are correct regardless of if the request runs
+ * on a worker thread, a virtual thread or a custom executor.
+ */
+public class WebScopesSetup
+	implements ThreadSetupHandler
+{
+	@Override
+	public <T, C> Action<T, C> create(Action<T, C> action)
+	{
+		return (exchange, context) -> {
+			ServletRequestContext requestContext = exchange == null
+				? null
+				: exchange.getAttachment(ServletRequestContext.ATTACHMENT_KEY);
+
+			if(requestContext == null)
+			{
+				return action.call(exchange, context);
+			}
+
+			ServletRequest request = requestContext.getServletRequest();
+			ServletResponse response = requestContext.getServletResponse();
+			if(! (request instanceof HttpServletRequest) || ! (response instanceof HttpServletResponse))
+			{
+				return action.call(exchange, context);
+			}
+
+			// Keep the previous request in case of nested invocations
+			HttpServletRequest previousRequest = WebScopes.getRequest();
+			HttpServletResponse previousResponse = WebScopes.getResponse();
+
+			WebScopes.init((HttpServletRequest) request, (HttpServletResponse) response);
+			try
+			{
+				return action.call(exchange, context);
+			}
+			finally
+			{
+				if(previousRequest == null)
+				{
+					WebScopes.clear();
+				}
+				else
+				{
+					WebScopes.init(previousRequest, previousResponse);
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,125 @@
+package se.l4.crayon.http.server.undertow;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.undertow.Undertow;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import se.l4.crayon.http.server.undertow.internal.WebScopesSetup;
+import se.l4.crayon.http.servlet.RequestContext;
+import se.l4.crayon.http.servlet.WebScopes;
+
+/**
+ * Testing that {@link RequestContext} keeps the request when an async
+ * servlet hands it off via {@link AsyncContext#start(Runnable)}.
+ */
+public class AsyncRequestContextTest
+{
+	private DeploymentInfo info;
+	private DeploymentManager manager;
+	private Undertow server;
+
+	@BeforeEach
+	public void before()
+		throws ServletException
+	{
+		info = Servlets.deployment()
+			.setContextPath("/")
+			.setDeploymentName("async-test")
+			.setClassLoader(getClass().getClassLoader())
+			.addThreadSetupAction(new WebScopesSetup())
+			.addServlet(Servlets.servlet("async", AsyncServlet.class)
+				.setAsyncSupported(true)
+				.addMapping("/*")
+			);
+
+		manager = Servlets.defaultContainer().addDeployment(info);
+		manager.deploy();
+
+		server = Undertow.builder()
+			.addHttpListener(0, "127.0.0.1")
+			.setHandler(manager.start())
+			.build();
+
+		server.start();
+	}
+
+	@AfterEach
+	public void after()
+		throws ServletException
+	{
+		server.stop();
+		manager.stop();
+		manager.undeploy();
+		Servlets.defaultContainer().removeDeployment(info);
+	}
+
+	@Test
+	public void testAsyncStart()
+		throws IOException
+	{
+		assertThat(get("/async/path"), is("/async/path"));
+	}
+
+	private String get(String path)
+		throws IOException
+	{
+		InetSocketAddress address = (InetSocketAddress) server.getListenerInfo().get(0).getAddress();
+		URL url = new URL("http", address.getHostString(), address.getPort(), path);
+
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try(InputStream in = connection.getInputStream())
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	public static class AsyncServlet
+		extends HttpServlet
+	{
+		@Override
+		protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+		{
+			RequestContext ctx = RequestContext.capture();
+			AsyncContext async = req.startAsync();
+			async.start(ctx.wrap(() -> {
+				try
+				{
+					HttpServletRequest request = WebScopes.getRequest();
+					resp.getWriter().write(request == null ? "none" : request.getRequestURI());
+				}
+				catch(IOException e)
+				{
+					throw new RuntimeException(e);
+				}
+				finally
+				{
+					async.complete();
+				}
+			}));
+		}
+	}
+}
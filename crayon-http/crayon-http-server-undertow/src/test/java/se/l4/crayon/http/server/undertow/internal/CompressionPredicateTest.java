@@ -0,0 +1,101 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+
+/**
+ * Testing of {@link CompressionPredicate}.
+ */
+public class CompressionPredicateTest
+{
+	private final CompressionPredicate predicate = new CompressionPredicate(
+		Arrays.asList("text/html", "application/json"),
+		1024
+	);
+
+	@Test
+	public void testStreamed()
+	{
+		assertThat(predicate.resolve(exchange("text/html", null)), is(true));
+	}
+
+	@Test
+	public void testLargeEnough()
+	{
+		assertThat(predicate.resolve(exchange("text/html", "1024")), is(true));
+	}
+
+	@Test
+	public void testTooSmall()
+	{
+		assertThat(predicate.resolve(exchange("text/html", "1023")), is(false));
+	}
+
+	@Test
+	public void testMalformedLength()
+	{
+		assertThat(predicate.resolve(exchange("text/html", "abc")), is(true));
+	}
+
+	@Test
+	public void testLengthWithWhitespace()
+	{
+		assertThat(predicate.resolve(exchange("text/html", " 10 ")), is(false));
+	}
+
+	@Test
+	public void testAlreadyEncoded()
+	{
+		HttpServerExchange exchange = exchange("text/html", null);
+		exchange.getResponseHeaders().put(Headers.CONTENT_ENCODING, "br");
+
+		assertThat(predicate.resolve(exchange), is(false));
+	}
+
+	@Test
+	public void testMissingType()
+	{
+		assertThat(predicate.resolve(exchange(null, null)), is(false));
+	}
+
+	@Test
+	public void testTypeNotAllowed()
+	{
+		assertThat(predicate.resolve(exchange("image/png", null)), is(false));
+	}
+
+	@Test
+	public void testTypeWithParameters()
+	{
+		assertThat(predicate.resolve(exchange("application/json; charset=UTF-8", null)), is(true));
+	}
+
+	@Test
+	public void testTypeIgnoresCase()
+	{
+		assertThat(predicate.resolve(exchange("Text/HTML;charset=utf-8", null)), is(true));
+	}
+
+	private static HttpServerExchange exchange(String type, String length)
+	{
+		HttpServerExchange exchange = new HttpServerExchange(null);
+		if(type != null)
+		{
+			exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, type);
+		}
+
+		if(length != null)
+		{
+			exchange.getResponseHeaders().put(Headers.CONTENT_LENGTH, length);
+		}
+
+		return exchange;
+	}
+}
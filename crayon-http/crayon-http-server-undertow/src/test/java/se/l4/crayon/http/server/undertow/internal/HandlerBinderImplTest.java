@@ -0,0 +1,170 @@
+package se.l4.crayon.http.server.undertow.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.List;
+
+import org.eclipse.collections.api.list.ListIterable;
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Guice;
+
+import io.undertow.Handlers;
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.PathHandler;
+import io.undertow.util.HttpString;
+import se.l4.crayon.http.server.undertow.HandlerConfiguration.BoundHandler;
+import se.l4.crayon.http.server.undertow.UndertowConfig;
+
+/**
+ * Testing of {@link HandlerBinderImpl}.
+ */
+public class HandlerBinderImplTest
+{
+	@Test
+	public void testExactPath()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/health").with(new NamedHandler("health"));
+
+		BoundHandler bound = single(binder);
+		assertThat(bound.getPath(), is("/health"));
+		assertThat(bound.isPrefix(), is(false));
+		assertThat(bound.isBlocking(), is(false));
+		assertThat(bound.getType() == NamedHandler.class, is(true));
+	}
+
+	@Test
+	public void testPrefixPath()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/api/*").with(new NamedHandler("api"));
+
+		BoundHandler bound = single(binder);
+		assertThat(bound.getPath(), is("/api"));
+		assertThat(bound.isPrefix(), is(true));
+	}
+
+	@Test
+	public void testRootPrefixPath()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/*").with(new NamedHandler("root"));
+
+		BoundHandler bound = single(binder);
+		assertThat(bound.getPath(), is("/"));
+		assertThat(bound.isPrefix(), is(true));
+	}
+
+	@Test
+	public void testBlocking()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/upload").blocking().with(new NamedHandler("upload"));
+
+		assertThat(single(binder).isBlocking(), is(true));
+	}
+
+	@Test
+	public void testMultiplePaths()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve(List.of("/a", "/b/*")).with(new NamedHandler("ab"));
+
+		ListIterable<BoundHandler> handlers = binder.toConfig().getHandlers();
+		assertThat(handlers.size(), is(2));
+		assertThat(handlers.get(0).getPath(), is("/a"));
+		assertThat(handlers.get(1).getPath(), is("/b"));
+		assertThat(handlers.get(1).isPrefix(), is(true));
+	}
+
+	@Test
+	public void testMountedExactPath()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/health").with(new NamedHandler("health"));
+
+		PathHandler path = mount(binder);
+		assertThat(route(path, "/health"), is("health"));
+		assertThat(route(path, "/health/more"), is("fallback"));
+		assertThat(route(path, "/healthy"), is("fallback"));
+	}
+
+	@Test
+	public void testMountedPrefixPath()
+	{
+		HandlerBinderImpl binder = binder();
+		binder.serve("/api/*").with(new NamedHandler("api"));
+		binder.serve("/api/status").with(new NamedHandler("status"));
+
+		PathHandler path = mount(binder);
+		assertThat(route(path, "/api"), is("api"));
+		assertThat(route(path, "/api/users/1"), is("api"));
+		assertThat(route(path, "/api/status"), is("status"));
+		assertThat(route(path, "/apis"), is("fallback"));
+		assertThat(route(path, "/other"), is("fallback"));
+	}
+
+	private static HandlerBinderImpl binder()
+	{
+		return new HandlerBinderImpl(Guice.createInjector(), new UndertowConfig());
+	}
+
+	private static BoundHandler single(HandlerBinderImpl binder)
+	{
+		ListIterable<BoundHandler> handlers = binder.toConfig().getHandlers();
+		assertThat(handlers.size(), is(1));
+		return handlers.get(0);
+	}
+
+	private static PathHandler mount(HandlerBinderImpl binder)
+	{
+		// The servlet deployment is mounted at / in the server
+		PathHandler path = Handlers.path().addPrefixPath("/", new NamedHandler("fallback"));
+		for(BoundHandler bound : binder.toConfig().getHandlers())
+		{
+			HandlerBinderImpl.mount(path, bound);
+		}
+
+		return path;
+	}
+
+	private static String route(PathHandler path, String requestPath)
+	{
+		HttpServerExchange exchange = new HttpServerExchange(null);
+		exchange.setRequestPath(requestPath);
+		exchange.setRelativePath(requestPath);
+
+		try
+		{
+			path.handleRequest(exchange);
+		}
+		catch(Exception e)
+		{
+			throw new AssertionError(e);
+		}
+
+		return exchange.getResponseHeaders().getFirst(NamedHandler.HANDLED_BY);
+	}
+
+	private static class NamedHandler
+		implements HttpHandler
+	{
+		private static final HttpString HANDLED_BY = new HttpString("Handled-By");
+
+		private final String name;
+
+		public NamedHandler(String name)
+		{
+			this.name = name;
+		}
+
+		@Override
+		public void handleRequest(HttpServerExchange exchange)
+		{
+			exchange.getResponseHeaders().put(HANDLED_BY, name);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 module se.l4.crayon.http.servlet {
 	requires transitive com.google.guice;
 	requires transitive java.servlet;
+	requires transitive reactor.core;
 
 	requires se.l4.crayon.module;
 	requires se.l4.crayon.types;
@@ -0,0 +1,282 @@
+package se.l4.crayon.http.servlet;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import se.l4.crayon.http.servlet.internal.RequestScopeStore;
+
+/**
+ * Snapshot of the request that {@link WebScopes} is bound to on a thread.
+ * A snapshot can be captured on the thread handling a request and restored
+ * on any other thread, which makes request scoped objects available to
+ * async servlets, executors and Reactor pipelines:
+ *
+ * <pre>
+ * RequestContext ctx = RequestContext.capture();
+ * asyncContext.start(ctx.wrap(() -&gt; {
+ *   // Request scoped objects are available here
+ * }));
+ * </pre>
+ *
+ * <p>
+ * Tasks scheduled on a Reactor {@link reactor.core.scheduler.Scheduler}
+ * keep the context of the thread that scheduled them while
+ * {@link #installReactorHook()} is active, the hook is global for the JVM so
+ * it is opt-in. Otherwise, and for callbacks that arrive on threads not
+ * owned by Reactor, the snapshot can be carried in the {@link Context} of a
+ * pipeline:
+ *
+ * <pre>
+ * mono.contextWrite(RequestContext.capture()::putInto);
+ * </pre>
+ */
+public final class RequestContext
+{
+	private static final String HOOK = RequestContext.class.getName();
+
+	private static final RequestContext NONE = new RequestContext(null, null);
+
+	private static int hooks;
+
+	private final HttpServletRequest request;
+	private final HttpServletResponse response;
+
+	/**
+	 * Store of the request scope that was last used, kept so that lookups
+	 * in the same scope skip the request attributes.
+	 */
+	private volatile RequestScopeStore store;
+
+	RequestContext(
+		HttpServletRequest request,
+		HttpServletResponse response
+	)
+	{
+		this.request = request;
+		this.response = response;
+	}
+
+	/**
+	 * Capture the context of the current thread. If the thread is not
+	 * handling a request the returned context is inactive, and restoring
+	 * it clears the request from the thread it is restored on.
+	 *
+	 * @return
+	 */
+	public static RequestContext capture()
+	{
+		RequestContext ctx = WebScopes.current();
+		return ctx == null ? NONE : ctx;
+	}
+
+	/**
+	 * Get the context stored in a Reactor context via {@link #putInto(Context)}.
+	 *
+	 * @param context
+	 * @return
+	 */
+	public static Optional<RequestContext> from(ContextView context)
+	{
+		return context.getOrEmpty(RequestContext.class);
+	}
+
+	/**
+	 * Run a supplier of a {@link Mono} with the request stored in the
+	 * Reactor context active. The request is only active while the supplier
+	 * runs, not for the subscription of the returned {@link Mono}.
+	 *
+	 * @param supplier
+	 * @return
+	 */
+	public static <T> Mono<T> withRequest(Callable<Mono<T>> supplier)
+	{
+		return Mono.deferContextual(view -> {
+			RequestContext ctx = from(view).orElse(NONE);
+			try
+			{
+				return ctx.call(supplier);
+			}
+			catch(Exception e)
+			{
+				return Mono.error(e);
+			}
+		});
+	}
+
+	/**
+	 * Get an executor that runs tasks with the context that was active when
+	 * they were submitted.
+	 *
+	 * @param executor
+	 * @return
+	 */
+	public static Executor propagating(Executor executor)
+	{
+		return task -> executor.execute(capture().wrap(task));
+	}
+
+	/**
+	 * Propagate the context of the current thread to every task scheduled
+	 * on a Reactor {@link reactor.core.scheduler.Scheduler}. The hook is
+	 * global for the JVM, so installs are counted and the hook stays until
+	 * {@link #removeReactorHook()} has been called once for every install.
+	 */
+	public static synchronized void installReactorHook()
+	{
+		if(hooks++ > 0)
+		{
+			return;
+		}
+
+		Schedulers.onScheduleHook(HOOK, task -> {
+			RequestContext ctx = WebScopes.current();
+			return ctx == null ? task : ctx.wrap(task);
+		});
+	}
+
+	/**
+	 * Release an install done via {@link #installReactorHook()}, removing
+	 * the hook when it is no longer installed by anyone.
+	 */
+	public static synchronized void removeReactorHook()
+	{
+		if(hooks == 0 || --hooks > 0)
+		{
+			return;
+		}
+
+		Schedulers.resetOnScheduleHook(HOOK);
+	}
+
+	/**
+	 * Get if this context belongs to a request.
+	 *
+	 * @return
+	 */
+	public boolean isActive()
+	{
+		return request != null;
+	}
+
+	/**
+	 * Get the request of this context.
+	 *
+	 * @return
+	 *   the request, or {@code null} if not {@link #isActive() active}
+	 */
+	public HttpServletRequest getRequest()
+	{
+		return request;
+	}
+
+	/**
+	 * Get the response of this context.
+	 *
+	 * @return
+	 *   the response, or {@code null} if not {@link #isActive() active}
+	 */
+	public HttpServletResponse getResponse()
+	{
+		return response;
+	}
+
+	RequestScopeStore getStore(RequestScopeStore.Slots slots)
+	{
+		RequestScopeStore store = this.store;
+		if(store == null || ! store.isFor(slots))
+		{
+			store = RequestScopeStore.get(request, slots);
+			this.store = store;
+		}
+
+		return store;
+	}
+
+	/**
+	 * Store this context in a Reactor context.
+	 *
+	 * @param context
+	 * @return
+	 */
+	public Context putInto(Context context)
+	{
+		return isActive() ? context.put(RequestContext.class, this) : context;
+	}
+
+	/**
+	 * Run a task with this context active, restoring the previous context
+	 * of the thread when done.
+	 *
+	 * @param task
+	 */
+	public void run(Runnable task)
+	{
+		RequestContext previous = WebScopes.activate(isActive() ? this : null);
+		try
+		{
+			task.run();
+		}
+		finally
+		{
+			WebScopes.activate(previous);
+		}
+	}
+
+	/**
+	 * Call a task with this context active, restoring the previous context
+	 * of the thread when done.
+	 *
+	 * @param task
+	 * @return
+	 * @throws Exception
+	 */
+	public <T> T call(Callable<T> task)
+		throws Exception
+	{
+		RequestContext previous = WebScopes.activate(isActive() ? this : null);
+		try
+		{
+			return task.call();
+		}
+		finally
+		{
+			WebScopes.activate(previous);
+		}
+	}
+
+	/**
+	 * Wrap a task so that it runs with this context active.
+	 *
+	 * @param task
+	 * @return
+	 */
+	public Runnable wrap(Runnable task)
+	{
+		return () -> run(task);
+	}
+
+	/**
+	 * Wrap a task so that it runs with this context active.
+	 *
+	 * @param task
+	 * @return
+	 */
+	public <T> Callable<T> wrap(Callable<T> task)
+	{
+		return () -> call(task);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "RequestContext{request=" + request + "}";
+	}
+}
@@ -90,7 +90,7 @@ public class ServletModule
 
 		// Bind scopes
 		bindScope(SessionScoped.class, WebScopes.SESSION);
-		bindScope(RequestScoped.class, WebScopes.REQUEST);
+		bindScope(RequestScoped.class, WebScopes.newRequestScope());
 
 		// Bind own services
 		bind(ServletBinder.class).to(ServletBinderImpl.class);
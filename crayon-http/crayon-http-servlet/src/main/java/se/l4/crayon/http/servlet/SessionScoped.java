@@ -10,7 +10,9 @@ import com.google.inject.ScopeAnnotation;
 
 /**
  * Indicate that a class is tied to a HTTP session and that only one instance
- * may exist for any one session.
+ * may exist for any one session. Looking up a session scoped object does not
+ * create a session, it must already have been created, such as by injecting
+ * {@link javax.servlet.http.HttpSession}.
  */
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
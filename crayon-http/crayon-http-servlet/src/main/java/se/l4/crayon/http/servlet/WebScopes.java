@@ -12,21 +12,22 @@ import com.google.inject.OutOfScopeException;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
 
+import se.l4.crayon.http.servlet.internal.RequestScopeStore;
+import se.l4.crayon.http.servlet.internal.SessionScopeStore;
+
 /**
  * Container of available scopes that are suitable for webapps.
  */
 public class WebScopes
 {
-	private static String KEY = "crayon.";
+	private static final String KEY = "crayon.";
 	private static final AtomicReference<ServletContext> context;
-	private static final ThreadLocal<HttpServletRequest> request;
-	private static final ThreadLocal<HttpServletResponse> response;
+	private static final ThreadLocal<RequestContext> current;
 
 	static
 	{
 		context = new AtomicReference<>();
-		request = new ThreadLocal<>();
-		response = new ThreadLocal<>();
+		current = new ThreadLocal<>();
 	}
 
 	public static void setContext(ServletContext ctx)
@@ -36,112 +37,137 @@ public class WebScopes
 
 	public static void init(HttpServletRequest req, HttpServletResponse resp)
 	{
-		request.set(req);
-		response.set(resp);
+		current.set(new RequestContext(req, resp));
 	}
 
 	public static void clear()
 	{
-		request.remove();
-		response.remove();
+		current.remove();
+	}
+
+	/**
+	 * Get the context active for this thread.
+	 *
+	 * @return
+	 *   active context, or {@code null} if outside of a request
+	 */
+	static RequestContext current()
+	{
+		return current.get();
 	}
 
-	public static final Scope REQUEST = new Scope()
+	/**
+	 * Activate the given context for this thread.
+	 *
+	 * @param ctx
+	 *   context to activate, or {@code null} to clear the thread
+	 * @return
+	 *   the context that was previously active
+	 */
+	static RequestContext activate(RequestContext ctx)
+	{
+		RequestContext previous = current.get();
+		if(ctx == null)
+		{
+			current.remove();
+		}
+		else
+		{
+			current.set(ctx);
+		}
+
+		return previous;
+	}
+
+	public static final Scope REQUEST = newRequestScope();
+
+	public static final Scope SESSION = new Scope()
 	{
 		@Override
 		public <T> Provider<T> scope(final Key<T> key, final Provider<T> p)
 		{
+			final String localKey = KEY + key.toString();
 			return new Provider<T>()
 			{
 				@Override
-				@SuppressWarnings("unchecked")
 				public T get()
 				{
-					HttpServletRequest req = request.get();
+					HttpServletRequest req = getRequest();
 
 					if(req == null)
 					{
-						throw new OutOfScopeException("Request scoped objects can only be used within HTTP requests; For " + key);
+						throw new OutOfScopeException("Session scoped objects can only be used within HTTP requests; For " + key);
 					}
 
-					String localKey = KEY + key.toString();
-
-					synchronized(req)
-					{
-						Object o = req.getAttribute(localKey);
-						if(o == null)
-						{
-							o = p.get();
-							req.setAttribute(localKey, o);
-						}
-
-						return (T) o;
-					}
+					// Only reached when an object is provisioned, which needs a session to live in
+					HttpSession session = req.getSession(true);
+					return SessionScopeStore.get(session, localKey, p);
 				}
 
 				@Override
 				public String toString()
 				{
-					return "WebScopes.REQUEST";
+					return "WebScopes.SESSION";
 				}
 			};
 		}
 	};
 
-	public static final Scope SESSION = new Scope()
+	private WebScopes()
 	{
-		@Override
-		public <T> Provider<T> scope(final Key<T> key, final Provider<T> p)
+	}
+
+	/**
+	 * Create a new request scope. Objects of a scope are kept in slots that
+	 * are allocated when bindings are scoped, so every injector should use
+	 * its own scope to only allocate slots for its own bindings.
+	 *
+	 * @return
+	 */
+	public static Scope newRequestScope()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		return new Scope()
 		{
-			return new Provider<T>()
+			@Override
+			public <T> Provider<T> scope(final Key<T> key, final Provider<T> p)
 			{
-				@Override
-				@SuppressWarnings("unchecked")
-				public T get()
+				final int slot = slots.allocate();
+				return new Provider<T>()
 				{
-					HttpSession session = request.get().getSession();
-
-					if(session == null)
-					{
-						throw new OutOfScopeException("Session scoped objects can only be used within HTTP requests");
-					}
-
-					synchronized(session)
+					@Override
+					public T get()
 					{
-						String localKey = KEY + key.toString();
+						RequestContext ctx = current.get();
 
-						Object o = session.getAttribute(localKey);
-						if(o == null)
+						if(ctx == null)
 						{
-							o = p.get();
-							session.setAttribute(localKey, o);
+							throw new OutOfScopeException("Request scoped objects can only be used within HTTP requests; For " + key);
 						}
 
-						return (T) o;
+						return ctx.getStore(slots).get(slot, p);
 					}
-				}
-
-				@Override
-				public String toString()
-				{
-					return "WebScopes.SESSION";
-				}
-			};
-		}
-	};
 
-	private WebScopes()
-	{
+					@Override
+					public String toString()
+					{
+						return "WebScopes.REQUEST";
+					}
+				};
+			}
+		};
 	}
 
 	public static HttpServletRequest getRequest()
 	{
-		return request.get();
+		RequestContext ctx = current.get();
+		return ctx == null ? null : ctx.getRequest();
 	}
 
 	public static HttpServletResponse getResponse()
 	{
-		return response.get();
+		RequestContext ctx = current.get();
+		return ctx == null ? null : ctx.getResponse();
 	}
 
 	public static ServletContext getContext()
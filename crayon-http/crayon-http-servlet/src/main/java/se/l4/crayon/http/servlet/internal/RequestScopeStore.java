@@ -0,0 +1,168 @@
+package se.l4.crayon.http.servlet.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.servlet.ServletRequest;
+
+import com.google.inject.Provider;
+
+/**
+ * Storage of request scoped objects. Every scoped binding is given a slot
+ * when it is scoped and objects are stored in an array indexed by that slot,
+ * so lookups do not need to build keys or take any locks. Slots are counted
+ * per {@link Slots} instance, normally one per scope and injector, so the
+ * array only holds the bindings of that scope.
+ *
+ * <p>
+ * If two threads ask for the same object at the same time both may create
+ * it, the first one stored is returned to both threads.
+ */
+public class RequestScopeStore
+{
+	private static final String ATTRIBUTE = RequestScopeStore.class.getName();
+	private static final AtomicInteger IDS = new AtomicInteger();
+
+	/**
+	 * Marker used to store {@code null} values.
+	 */
+	private static final Object NULL = new Object();
+
+	private final Slots slots;
+	private final AtomicReferenceArray<Object> values;
+	private final AtomicReference<ConcurrentHashMap<Integer, Object>> overflow;
+
+	public RequestScopeStore(Slots slots)
+	{
+		this.slots = slots;
+
+		values = new AtomicReferenceArray<>(slots.count.get());
+		overflow = new AtomicReference<>();
+	}
+
+	/**
+	 * Get the store for the given slots in a request, creating it if needed.
+	 *
+	 * @param request
+	 * @param slots
+	 * @return
+	 */
+	public static RequestScopeStore get(ServletRequest request, Slots slots)
+	{
+		Object store = request.getAttribute(slots.attribute);
+		if(store != null)
+		{
+			return (RequestScopeStore) store;
+		}
+
+		// Only taken once per request, as the request may have been handed to other threads
+		synchronized(request)
+		{
+			store = request.getAttribute(slots.attribute);
+			if(store == null)
+			{
+				store = new RequestScopeStore(slots);
+				request.setAttribute(slots.attribute, store);
+			}
+
+			return (RequestScopeStore) store;
+		}
+	}
+
+	/**
+	 * Get if this store holds objects for the given slots.
+	 *
+	 * @param slots
+	 * @return
+	 */
+	public boolean isFor(Slots slots)
+	{
+		return this.slots == slots;
+	}
+
+	/**
+	 * Get the object in the given slot, creating it via the provider if it
+	 * has not been created for this request.
+	 *
+	 * @param slot
+	 * @param provider
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(int slot, Provider<T> provider)
+	{
+		if(slot >= values.length())
+		{
+			// Slot allocated after this request started
+			return getOverflow(slot, provider);
+		}
+
+		Object value = values.get(slot);
+		if(value == null)
+		{
+			value = wrap(provider.get());
+			if(! values.compareAndSet(slot, null, value))
+			{
+				value = values.get(slot);
+			}
+		}
+
+		return value == NULL ? null : (T) value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getOverflow(int slot, Provider<T> provider)
+	{
+		ConcurrentHashMap<Integer, Object> map = overflow.get();
+		if(map == null)
+		{
+			overflow.compareAndSet(null, new ConcurrentHashMap<>());
+			map = overflow.get();
+		}
+
+		Object value = map.get(slot);
+		if(value == null)
+		{
+			Object created = wrap(provider.get());
+			value = map.putIfAbsent(slot, created);
+			if(value == null)
+			{
+				value = created;
+			}
+		}
+
+		return value == NULL ? null : (T) value;
+	}
+
+	private static Object wrap(Object value)
+	{
+		return value == null ? NULL : value;
+	}
+
+	/**
+	 * Slots allocated to the bindings of a scope.
+	 */
+	public static class Slots
+	{
+		private final AtomicInteger count;
+		private final String attribute;
+
+		public Slots()
+		{
+			count = new AtomicInteger();
+			attribute = ATTRIBUTE + "." + IDS.getAndIncrement();
+		}
+
+		/**
+		 * Allocate a new slot for a scoped binding.
+		 *
+		 * @return
+		 */
+		public int allocate()
+		{
+			return count.getAndIncrement();
+		}
+	}
+}
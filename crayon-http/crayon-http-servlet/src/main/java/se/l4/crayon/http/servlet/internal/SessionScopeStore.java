@@ -0,0 +1,110 @@
+package se.l4.crayon.http.servlet.internal;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpSession;
+
+import com.google.inject.Provider;
+
+/**
+ * Storage of session scoped objects, kept as a single attribute of the
+ * session. Lookups read a {@link ConcurrentHashMap} so parallel requests
+ * in the same session do not wait for each other.
+ *
+ * <p>
+ * Objects are created outside of the map so that scoped objects can depend
+ * on other scoped objects. If two requests ask for the same object at the
+ * same time both may create it, the first one stored is returned to both.
+ * The attribute is set again whenever an object is added, so that session
+ * managers that replicate or persist sessions see the change.
+ *
+ * <p>
+ * Earlier versions stored every object as its own attribute of the session,
+ * objects in sessions persisted by those versions are not found and are
+ * created again.
+ */
+public class SessionScopeStore
+	implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final String ATTRIBUTE = SessionScopeStore.class.getName();
+
+	/**
+	 * Marker used to store {@code null} values, an enum so that it remains
+	 * the same instance when the session is serialized.
+	 */
+	private enum Null
+	{
+		INSTANCE
+	}
+
+	private final ConcurrentHashMap<String, Object> values;
+
+	public SessionScopeStore()
+	{
+		values = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get the object stored with the given key in the session, creating it
+	 * via the provider if it does not exist.
+	 *
+	 * @param session
+	 * @param key
+	 * @param provider
+	 * @return
+	 */
+	public static <T> T get(HttpSession session, String key, Provider<T> provider)
+	{
+		return storeOf(session).getOrCreate(session, key, provider);
+	}
+
+	private static SessionScopeStore storeOf(HttpSession session)
+	{
+		Object store = session.getAttribute(ATTRIBUTE);
+		if(store != null)
+		{
+			return (SessionScopeStore) store;
+		}
+
+		// Only taken once per session, when the store is first created
+		synchronized(session)
+		{
+			store = session.getAttribute(ATTRIBUTE);
+			if(store == null)
+			{
+				store = new SessionScopeStore();
+				session.setAttribute(ATTRIBUTE, store);
+			}
+
+			return (SessionScopeStore) store;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getOrCreate(HttpSession session, String key, Provider<T> provider)
+	{
+		Object value = values.get(key);
+		if(value == null)
+		{
+			Object created = provider.get();
+			if(created == null)
+			{
+				created = Null.INSTANCE;
+			}
+
+			value = values.putIfAbsent(key, created);
+			if(value == null)
+			{
+				value = created;
+
+				// Mark the session as changed
+				session.setAttribute(ATTRIBUTE, this);
+			}
+		}
+
+		return value == Null.INSTANCE ? null : (T) value;
+	}
+}
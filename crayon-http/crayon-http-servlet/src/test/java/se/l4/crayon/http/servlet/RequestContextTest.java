@@ -0,0 +1,177 @@
+package se.l4.crayon.http.servlet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+/**
+ * Testing of {@link RequestContext}.
+ */
+public class RequestContextTest
+{
+	private ExecutorService executor;
+	private HttpServletRequest request;
+
+	@BeforeEach
+	public void before()
+	{
+		executor = Executors.newSingleThreadExecutor();
+		request = TestRequests.request("/test");
+		WebScopes.init(request, TestRequests.response());
+	}
+
+	@AfterEach
+	public void after()
+	{
+		WebScopes.clear();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testCaptureOutsideRequest()
+	{
+		WebScopes.clear();
+
+		RequestContext ctx = RequestContext.capture();
+		assertThat(ctx.isActive(), is(false));
+		assertThat(ctx.putInto(Context.empty()).isEmpty(), is(true));
+	}
+
+	@Test
+	public void testWrap()
+		throws Exception
+	{
+		RequestContext ctx = RequestContext.capture();
+
+		CompletableFuture<HttpServletRequest> seen = new CompletableFuture<>();
+		executor.execute(ctx.wrap((Runnable) () -> seen.complete(WebScopes.getRequest())));
+		assertThat(seen.get(5, TimeUnit.SECONDS), sameInstance(request));
+
+		// The thread is restored after the task
+		CompletableFuture<Optional<HttpServletRequest>> after = new CompletableFuture<>();
+		executor.execute(() -> after.complete(Optional.ofNullable(WebScopes.getRequest())));
+		assertThat(after.get(5, TimeUnit.SECONDS).isPresent(), is(false));
+	}
+
+	@Test
+	public void testPropagatingExecutor()
+		throws Exception
+	{
+		CompletableFuture<HttpServletRequest> seen = new CompletableFuture<>();
+		RequestContext.propagating(executor)
+			.execute(() -> seen.complete(WebScopes.getRequest()));
+
+		assertThat(seen.get(5, TimeUnit.SECONDS), sameInstance(request));
+	}
+
+	@Test
+	public void testRequestScopedOnOtherThread()
+		throws Exception
+	{
+		Provider<Object> scoped = WebScopes.REQUEST.scope(Key.get(Object.class), Object::new);
+		Object onRequestThread = scoped.get();
+
+		CompletableFuture<Object> seen = new CompletableFuture<>();
+		RequestContext.propagating(executor)
+			.execute(() -> seen.complete(scoped.get()));
+
+		assertThat(seen.get(5, TimeUnit.SECONDS), sameInstance(onRequestThread));
+	}
+
+	@Test
+	public void testReactorContext()
+	{
+		HttpServletRequest seen = RequestContext.withRequest(() -> Mono.justOrEmpty(WebScopes.getRequest()))
+			.subscribeOn(Schedulers.boundedElastic())
+			.contextWrite(RequestContext.capture()::putInto)
+			.block();
+
+		assertThat(seen, sameInstance(request));
+	}
+
+	@Test
+	public void testReactorContextFrom()
+	{
+		RequestContext ctx = Mono.deferContextual(view -> Mono.justOrEmpty(RequestContext.from(view)))
+			.publishOn(Schedulers.parallel())
+			.contextWrite(RequestContext.capture()::putInto)
+			.block();
+
+		assertThat(ctx.getRequest(), sameInstance(request));
+	}
+
+	@Test
+	public void testWithoutReactorHook()
+	{
+		assertThat(requestOnScheduler(), nullValue());
+	}
+
+	@Test
+	public void testReactorHook()
+	{
+		RequestContext.installReactorHook();
+		try
+		{
+			assertThat(requestOnScheduler(), sameInstance(request));
+		}
+		finally
+		{
+			RequestContext.removeReactorHook();
+		}
+
+		assertThat(requestOnScheduler(), nullValue());
+	}
+
+	@Test
+	public void testReactorHookIsCounted()
+	{
+		RequestContext.installReactorHook();
+		RequestContext.installReactorHook();
+
+		RequestContext.removeReactorHook();
+		assertThat(requestOnScheduler(), sameInstance(request));
+
+		RequestContext.removeReactorHook();
+		assertThat(requestOnScheduler(), nullValue());
+
+		// Extra removes are ignored
+		RequestContext.removeReactorHook();
+		RequestContext.installReactorHook();
+		try
+		{
+			assertThat(requestOnScheduler(), sameInstance(request));
+		}
+		finally
+		{
+			RequestContext.removeReactorHook();
+		}
+	}
+
+	private static HttpServletRequest requestOnScheduler()
+	{
+		return Mono.fromSupplier(() -> Optional.ofNullable(WebScopes.getRequest()))
+			.subscribeOn(Schedulers.boundedElastic())
+			.block()
+			.orElse(null);
+	}
+}
@@ -0,0 +1,135 @@
+package se.l4.crayon.http.servlet;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Minimal requests and responses for testing scopes without a container.
+ */
+public class TestRequests
+{
+	private TestRequests()
+	{
+	}
+
+	/**
+	 * Create a request that keeps its attributes in a map. A session is
+	 * created the first time one is requested.
+	 *
+	 * @param uri
+	 * @return
+	 */
+	public static HttpServletRequest request(String uri)
+	{
+		Map<String, Object> attributes = new ConcurrentHashMap<>();
+		AtomicReference<HttpSession> session = new AtomicReference<>();
+		return (HttpServletRequest) Proxy.newProxyInstance(
+			TestRequests.class.getClassLoader(),
+			new Class<?>[] { HttpServletRequest.class },
+			(proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						attributes.put((String) args[0], args[1]);
+						return null;
+					case "removeAttribute":
+						attributes.remove(args[0]);
+						return null;
+					case "getRequestURI":
+						return uri;
+					case "getSession":
+						if(args == null || (Boolean) args[0])
+						{
+							session.compareAndSet(null, session());
+						}
+
+						return session.get();
+					case "toString":
+						return "TestRequest{" + uri + "}";
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+
+	/**
+	 * Create a session that keeps its attributes in a map.
+	 *
+	 * @return
+	 */
+	public static HttpSession session()
+	{
+		return session(new AtomicInteger());
+	}
+
+	/**
+	 * Create a session that keeps its attributes in a map, counting the
+	 * number of times an attribute is set.
+	 *
+	 * @param writes
+	 * @return
+	 */
+	public static HttpSession session(AtomicInteger writes)
+	{
+		Map<String, Object> attributes = new ConcurrentHashMap<>();
+		return (HttpSession) Proxy.newProxyInstance(
+			TestRequests.class.getClassLoader(),
+			new Class<?>[] { HttpSession.class },
+			(proxy, method, args) -> {
+				switch(method.getName())
+				{
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						writes.incrementAndGet();
+						attributes.put((String) args[0], args[1]);
+						return null;
+					case "removeAttribute":
+						attributes.remove(args[0]);
+						return null;
+					case "getAttributeNames":
+						return Collections.enumeration(attributes.keySet());
+					case "toString":
+						return "TestSession" + attributes.keySet();
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		);
+	}
+
+	/**
+	 * Create a response that supports no operations.
+	 *
+	 * @return
+	 */
+	public static HttpServletResponse response()
+	{
+		return (HttpServletResponse) Proxy.newProxyInstance(
+			TestRequests.class.getClassLoader(),
+			new Class<?>[] { HttpServletResponse.class },
+			(proxy, method, args) -> {
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+	}
+}
@@ -0,0 +1,161 @@
+package se.l4.crayon.http.servlet.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+
+import se.l4.crayon.http.servlet.TestRequests;
+
+/**
+ * Testing of {@link RequestScopeStore}.
+ */
+public class RequestScopeStoreTest
+{
+	@Test
+	public void testSlotCreatedOnce()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		int slot = slots.allocate();
+
+		RequestScopeStore store = new RequestScopeStore(slots);
+		AtomicInteger calls = new AtomicInteger();
+
+		Object first = store.get(slot, () -> { calls.incrementAndGet(); return new Object(); });
+		Object second = store.get(slot, () -> { calls.incrementAndGet(); return new Object(); });
+
+		assertThat(second, sameInstance(first));
+		assertThat(calls.get(), is(1));
+	}
+
+	@Test
+	public void testSlotsAreSeparate()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		int a = slots.allocate();
+		int b = slots.allocate();
+
+		RequestScopeStore store = new RequestScopeStore(slots);
+
+		assertThat(store.get(a, Object::new), not(sameInstance(store.get(b, Object::new))));
+	}
+
+	@Test
+	public void testNullIsStored()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		int slot = slots.allocate();
+
+		RequestScopeStore store = new RequestScopeStore(slots);
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThat(store.get(slot, () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(store.get(slot, () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(calls.get(), is(1));
+	}
+
+	@Test
+	public void testSlotAllocatedAfterStoreCreated()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		RequestScopeStore store = new RequestScopeStore(slots);
+
+		int slot = slots.allocate();
+		AtomicInteger calls = new AtomicInteger();
+
+		Object first = store.get(slot, () -> { calls.incrementAndGet(); return new Object(); });
+		Object second = store.get(slot, () -> { calls.incrementAndGet(); return new Object(); });
+
+		assertThat(second, sameInstance(first));
+		assertThat(calls.get(), is(1));
+
+		int nullSlot = slots.allocate();
+		assertThat(store.get(nullSlot, () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(store.get(nullSlot, () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(calls.get(), is(2));
+	}
+
+	@Test
+	public void testConcurrentCreationReturnsFirstStored()
+		throws Exception
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		int slot = slots.allocate();
+
+		RequestScopeStore store = new RequestScopeStore(slots);
+
+		// Both threads create an object before either of them stores it
+		CountDownLatch created = new CountDownLatch(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			Future<Object> a = executor.submit(() -> store.get(slot, () -> await(created)));
+			Future<Object> b = executor.submit(() -> store.get(slot, () -> await(created)));
+
+			Object first = a.get(5, TimeUnit.SECONDS);
+			assertThat(b.get(5, TimeUnit.SECONDS), sameInstance(first));
+			assertThat(store.get(slot, Object::new), sameInstance(first));
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testStorePerRequestAndSlots()
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		RequestScopeStore.Slots otherSlots = new RequestScopeStore.Slots();
+
+		HttpServletRequest request = TestRequests.request("/");
+		RequestScopeStore store = RequestScopeStore.get(request, slots);
+
+		assertThat(RequestScopeStore.get(request, slots), sameInstance(store));
+		assertThat(store.isFor(slots), is(true));
+		assertThat(store.isFor(otherSlots), is(false));
+		assertThat(RequestScopeStore.get(request, otherSlots), not(sameInstance(store)));
+		assertThat(RequestScopeStore.get(TestRequests.request("/"), slots), not(sameInstance(store)));
+	}
+
+	@Test
+	public void testConcurrentStoreCreation()
+		throws Exception
+	{
+		RequestScopeStore.Slots slots = new RequestScopeStore.Slots();
+		HttpServletRequest request = TestRequests.request("/");
+
+		CompletableFuture<RequestScopeStore> other = CompletableFuture.supplyAsync(() -> RequestScopeStore.get(request, slots));
+		RequestScopeStore store = RequestScopeStore.get(request, slots);
+
+		assertThat(other.get(5, TimeUnit.SECONDS), sameInstance(store));
+	}
+
+	private static Object await(CountDownLatch latch)
+	{
+		latch.countDown();
+		try
+		{
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		return new Object();
+	}
+}
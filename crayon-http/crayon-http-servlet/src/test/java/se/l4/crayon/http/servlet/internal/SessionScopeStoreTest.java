@@ -0,0 +1,117 @@
+package se.l4.crayon.http.servlet.internal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+
+import se.l4.crayon.http.servlet.TestRequests;
+import se.l4.crayon.http.servlet.WebScopes;
+
+/**
+ * Testing of {@link SessionScopeStore}.
+ */
+public class SessionScopeStoreTest
+{
+	@Test
+	public void testCreatedOnce()
+	{
+		HttpSession session = TestRequests.session();
+		AtomicInteger calls = new AtomicInteger();
+
+		Object first = SessionScopeStore.get(session, "a", () -> { calls.incrementAndGet(); return new Object(); });
+		Object second = SessionScopeStore.get(session, "a", () -> { calls.incrementAndGet(); return new Object(); });
+
+		assertThat(second, sameInstance(first));
+		assertThat(calls.get(), is(1));
+		assertThat(Collections.list(session.getAttributeNames()), is(Collections.singletonList(SessionScopeStore.class.getName())));
+	}
+
+	@Test
+	public void testNullIsStored()
+	{
+		HttpSession session = TestRequests.session();
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThat(SessionScopeStore.get(session, "a", () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(SessionScopeStore.get(session, "a", () -> { calls.incrementAndGet(); return null; }), nullValue());
+		assertThat(calls.get(), is(1));
+	}
+
+	@Test
+	public void testAttributeSetWhenChanged()
+	{
+		AtomicInteger writes = new AtomicInteger();
+		HttpSession session = TestRequests.session(writes);
+
+		SessionScopeStore.get(session, "a", () -> "a");
+		int afterFirst = writes.get();
+
+		SessionScopeStore.get(session, "a", () -> "a");
+		assertThat(writes.get(), is(afterFirst));
+
+		SessionScopeStore.get(session, "b", () -> "b");
+		assertThat(writes.get(), is(afterFirst + 1));
+	}
+
+	@Test
+	public void testSerializable()
+		throws Exception
+	{
+		HttpSession session = TestRequests.session();
+		SessionScopeStore.get(session, "value", () -> "value");
+		SessionScopeStore.get(session, "null", () -> null);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(session.getAttribute(SessionScopeStore.class.getName()));
+		}
+
+		HttpSession restored = TestRequests.session();
+		try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			restored.setAttribute(SessionScopeStore.class.getName(), in.readObject());
+		}
+
+		AtomicInteger calls = new AtomicInteger();
+		assertThat(SessionScopeStore.get(restored, "value", () -> { calls.incrementAndGet(); return "other"; }), is("value"));
+		assertThat(SessionScopeStore.get(restored, "null", () -> { calls.incrementAndGet(); return "other"; }), nullValue());
+		assertThat(calls.get(), is(0));
+	}
+
+	@Test
+	public void testScopeCreatesSession()
+	{
+		HttpServletRequest request = TestRequests.request("/");
+		WebScopes.init(request, TestRequests.response());
+		try
+		{
+			Provider<Object> scoped = WebScopes.SESSION.scope(Key.get(Object.class), Object::new);
+
+			Object first = scoped.get();
+			assertThat(request.getSession(false), notNullValue());
+			assertThat(scoped.get(), sameInstance(first));
+		}
+		finally
+		{
+			WebScopes.clear();
+		}
+	}
+}
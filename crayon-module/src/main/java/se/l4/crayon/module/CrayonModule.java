@@ -1,6 +1,7 @@
 package se.l4.crayon.module;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.Executor;
 
 import com.google.inject.Binder;
 import com.google.inject.Binding;
@@ -128,6 +129,43 @@ public abstract class CrayonModule
 		contributions.bindContributions(annotation);
 	}
 
+	/**
+	 * Bind a {@link Contributions} instance that runs contributions that do
+	 * not depend on each other in parallel using the default executor. The
+	 * default executor uses virtual threads if available.
+	 *
+	 * @see ContributionsBinder#bindParallelContributions(Class)
+	 * @param annotation
+	 */
+	protected void bindParallelContributions(Class<? extends Annotation> annotation)
+	{
+		Executor executor = ParallelExecutor.EXECUTOR;
+		if(executor == null)
+		{
+			contributions.bindParallelContributions(annotation);
+		}
+		else
+		{
+			contributions.bindParallelContributions(annotation, executor);
+		}
+	}
+
+	/**
+	 * Bind a {@link Contributions} instance that runs contributions that do
+	 * not depend on each other in parallel on the given executor.
+	 *
+	 * @see ContributionsBinder#bindParallelContributions(Class, Executor)
+	 * @param annotation
+	 * @param executor
+	 */
+	protected void bindParallelContributions(
+		Class<? extends Annotation> annotation,
+		Executor executor
+	)
+	{
+		contributions.bindParallelContributions(annotation, executor);
+	}
+
 	/**
 	 * Get the configuration binder for this module.
 	 *
@@ -364,4 +402,13 @@ public abstract class CrayonModule
 	{
 		return obj.getClass() == getClass();
 	}
+
+	/**
+	 * Shared executor using virtual threads for parallel contributions,
+	 * {@code null} if the JVM does not support virtual threads.
+	 */
+	private static class ParallelExecutor
+	{
+		static final Executor EXECUTOR = VirtualThreads.newExecutor().orElse(null);
+	}
 }
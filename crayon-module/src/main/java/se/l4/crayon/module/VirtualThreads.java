@@ -0,0 +1,36 @@
+package se.l4.crayon.module;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Support for virtual threads on JVMs that have them. Looked up via
+ * reflection so that Crayon can run on JVMs without virtual threads.
+ */
+public class VirtualThreads
+{
+	private VirtualThreads()
+	{
+	}
+
+	/**
+	 * Create an executor that runs every task on a new virtual thread.
+	 *
+	 * @return
+	 *   executor, or empty if the JVM does not support virtual threads
+	 */
+	public static Optional<ExecutorService> newExecutor()
+	{
+		try
+		{
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return Optional.of((ExecutorService) m.invoke(null));
+		}
+		catch(ReflectiveOperationException | RuntimeException e)
+		{
+			return Optional.empty();
+		}
+	}
+}
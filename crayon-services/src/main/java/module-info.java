@@ -1,9 +1,13 @@
 module se.l4.crayon.services {
 	requires transitive se.l4.crayon.module;
 	requires se.l4.ylem.types.matching;
+	requires se.l4.exobytes;
+	requires java.validation;
 
 	requires transitive org.reactivestreams;
 	requires transitive reactor.core;
 
 	exports se.l4.crayon.services;
+
+	opens se.l4.crayon.services to se.l4.exobytes;
 }
@@ -0,0 +1,31 @@
+package se.l4.crayon.services;
+
+import com.google.inject.matcher.Matchers;
+import com.google.inject.multibindings.OptionalBinder;
+
+import se.l4.crayon.module.CrayonModule;
+import se.l4.crayon.services.internal.LazyServiceStarter;
+
+/**
+ * Module that starts services on demand instead of during startup. A service
+ * is started, together with the services it depends on, the first time it
+ * or something that depends on it is provisioned. Provisioning waits until
+ * the service is running, except on threads that must not block where the
+ * service is started in the background. Install together with
+ * {@link ServicesModule}.
+ */
+public class LazyServicesModule
+	extends CrayonModule
+{
+	@Override
+	public void configure()
+	{
+		LazyServiceStarter starter = new LazyServiceStarter();
+
+		OptionalBinder.newOptionalBinder(binder(), LazyServiceStarter.class)
+			.setBinding()
+			.toInstance(starter);
+
+		bindListener(Matchers.any(), starter);
+	}
+}
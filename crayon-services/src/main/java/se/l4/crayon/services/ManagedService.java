@@ -16,7 +16,8 @@ public interface ManagedService
 	Mono<RunningService> start();
 
 	/**
-	 * Get other services this service depends on.
+	 * Get other services this service depends on. Dependencies that have not
+	 * been added to the manager are ignored until they are added.
 	 *
 	 * @return
 	 */
@@ -0,0 +1,190 @@
+package se.l4.crayon.services;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy used by a {@link ServiceManager} to restart services that fail.
+ * Restarts use an exponential backoff starting at a minimum delay that is
+ * doubled for every consecutive failure up until a maximum delay. A random
+ * jitter is applied to the delay to avoid many services restarting at the
+ * same time.
+ *
+ * <pre>
+ * RestartPolicy policy = RestartPolicy.exponential(Duration.ofSeconds(1), Duration.ofMinutes(1))
+ *   .withJitter(0.5)
+ *   .withMaxRestarts(10);
+ * </pre>
+ */
+public class RestartPolicy
+{
+	private static final RestartPolicy NONE = new RestartPolicy(false, Duration.ZERO, Duration.ZERO, 0, -1);
+
+	private final boolean enabled;
+	private final Duration minBackoff;
+	private final Duration maxBackoff;
+	private final double jitter;
+	private final int maxRestarts;
+
+	private RestartPolicy(
+		boolean enabled,
+		Duration minBackoff,
+		Duration maxBackoff,
+		double jitter,
+		int maxRestarts
+	)
+	{
+		this.enabled = enabled;
+		this.minBackoff = minBackoff;
+		this.maxBackoff = maxBackoff;
+		this.jitter = jitter;
+		this.maxRestarts = maxRestarts;
+	}
+
+	/**
+	 * Get a policy that never restarts services.
+	 *
+	 * @return
+	 */
+	public static RestartPolicy none()
+	{
+		return NONE;
+	}
+
+	/**
+	 * Get a policy that restarts services with an exponential backoff and
+	 * no jitter.
+	 *
+	 * @param minBackoff
+	 *   the delay before the first restart
+	 * @param maxBackoff
+	 *   the maximum delay between restarts, a service that has been running
+	 *   for this long is considered healthy and its backoff is reset
+	 * @return
+	 */
+	public static RestartPolicy exponential(Duration minBackoff, Duration maxBackoff)
+	{
+		if(minBackoff.isNegative() || maxBackoff.compareTo(minBackoff) < 0)
+		{
+			throw new IllegalArgumentException("Backoff must be positive and maxBackoff can not be less than minBackoff");
+		}
+
+		return new RestartPolicy(true, minBackoff, maxBackoff, 0, -1);
+	}
+
+	/**
+	 * Get a copy of this policy with the given jitter.
+	 *
+	 * @param jitter
+	 *   the fraction of the delay that is random, between {@code 0} and
+	 *   {@code 1}
+	 * @return
+	 */
+	public RestartPolicy withJitter(double jitter)
+	{
+		if(jitter < 0 || jitter > 1)
+		{
+			throw new IllegalArgumentException("jitter must be between 0 and 1");
+		}
+
+		return new RestartPolicy(enabled, minBackoff, maxBackoff, jitter, maxRestarts);
+	}
+
+	/**
+	 * Get a copy of this policy that gives up after the given number of
+	 * consecutive failures.
+	 *
+	 * @param maxRestarts
+	 *   the maximum number of consecutive restarts, or {@code -1} to never
+	 *   give up
+	 * @return
+	 */
+	public RestartPolicy withMaxRestarts(int maxRestarts)
+	{
+		return new RestartPolicy(enabled, minBackoff, maxBackoff, jitter, maxRestarts);
+	}
+
+	/**
+	 * Get if this policy restarts services.
+	 *
+	 * @return
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Get the time a service needs to be running before its consecutive
+	 * failures are forgotten.
+	 *
+	 * @return
+	 */
+	public Duration getResetAfter()
+	{
+		return maxBackoff;
+	}
+
+	/**
+	 * Get if a service that has failed the given number of times in a row
+	 * will be restarted.
+	 *
+	 * @param consecutiveFailures
+	 *   number of consecutive failures, including the current one
+	 * @return
+	 */
+	public boolean willRestart(int consecutiveFailures)
+	{
+		return enabled
+			&& consecutiveFailures >= 1
+			&& (maxRestarts < 0 || consecutiveFailures <= maxRestarts);
+	}
+
+	/**
+	 * Get the delay before restarting a service that has failed the given
+	 * number of times in a row.
+	 *
+	 * @param consecutiveFailures
+	 *   number of consecutive failures, including the current one
+	 * @return
+	 *   delay to wait before restarting, or empty if the service should not
+	 *   be restarted
+	 */
+	public Optional<Duration> getBackoff(int consecutiveFailures)
+	{
+		if(! willRestart(consecutiveFailures))
+		{
+			return Optional.empty();
+		}
+
+		long min = minBackoff.toNanos();
+		long max = maxBackoff.toNanos();
+
+		// Double the delay for every failure, avoiding overflow
+		int shift = Math.min(consecutiveFailures - 1, 62);
+		long delay = min > (max >> shift) ? max : Math.min(max, min << shift);
+
+		if(jitter > 0)
+		{
+			delay -= (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+		}
+
+		return Optional.of(Duration.ofNanos(delay));
+	}
+
+	@Override
+	public String toString()
+	{
+		if(! enabled)
+		{
+			return "RestartPolicy{none}";
+		}
+
+		return "RestartPolicy{minBackoff=" + minBackoff
+			+ ", maxBackoff=" + maxBackoff
+			+ ", jitter=" + jitter
+			+ ", maxRestarts=" + maxRestarts
+			+ "}";
+	}
+}
@@ -1,7 +1,7 @@
 package se.l4.crayon.services;
 
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.Sinks;
 
 /**
  * Abstraction of a running service.
@@ -44,7 +44,7 @@ public interface RunningService
 	 */
 	static RunningService stoppable(Runnable stopAction)
 	{
-		MonoProcessor<Void> processor = MonoProcessor.create();
+		Sinks.One<Void> stopped = Sinks.one();
 
 		return new RunningService()
 		{
@@ -55,11 +55,11 @@ public interface RunningService
 					try
 					{
 						stopAction.run();
-						processor.onNext(null);
+						stopped.tryEmitEmpty();
 					}
 					catch(Throwable t)
 					{
-						processor.onError(t);
+						stopped.tryEmitError(t);
 					}
 
 					return true;
@@ -69,7 +69,7 @@ public interface RunningService
 			@Override
 			public Mono<Void> onStop()
 			{
-				return processor;
+				return stopped.asMono();
 			}
 		};
 	}
@@ -0,0 +1,40 @@
+package se.l4.crayon.services;
+
+import org.eclipse.collections.api.set.ImmutableSet;
+
+/**
+ * Immutable snapshot of the dependencies between services in a
+ * {@link ServiceManager}. Changes to the manager are not reflected in a
+ * snapshot, use {@link ServiceManager#getGraph()} to get a new one.
+ */
+public interface ServiceGraph
+{
+	/**
+	 * Get the types of all services in the graph.
+	 *
+	 * @return
+	 */
+	ImmutableSet<Class<? extends ManagedService>> getServices();
+
+	/**
+	 * Get the services that the given service depends on.
+	 *
+	 * @param service
+	 *   the type of the service
+	 * @return
+	 *   services that are depended on, empty if the service is not part of
+	 *   the graph
+	 */
+	ImmutableSet<Class<? extends ManagedService>> getDependencies(Class<? extends ManagedService> service);
+
+	/**
+	 * Get the services that depend on the given service.
+	 *
+	 * @param service
+	 *   the type of the service
+	 * @return
+	 *   services that depend on the service, empty if the service is not
+	 *   part of the graph
+	 */
+	ImmutableSet<Class<? extends ManagedService>> getDependents(Class<? extends ManagedService> service);
+}
@@ -0,0 +1,24 @@
+package se.l4.crayon.services;
+
+/**
+ * Health of the services in a {@link ServiceManager}, intended for
+ * readiness and liveness checks. The health is updated when services change
+ * state, so checking it is cheap and does not allocate.
+ */
+public interface ServiceHealth
+{
+	/**
+	 * Get if all services are {@link ServiceStatus.State#RUNNING running}.
+	 *
+	 * @return
+	 */
+	boolean isReady();
+
+	/**
+	 * Get if no service has {@link ServiceStatus.State#FAILED failed} without
+	 * being restarted by the {@link RestartPolicy} of the manager.
+	 *
+	 * @return
+	 */
+	boolean isLive();
+}
@@ -27,6 +27,32 @@ public interface ServiceManager
 	 */
 	void add(ManagedService service);
 
+	/**
+	 * Remove a service from this manager. The service must be stopped or
+	 * failed. Services that depend on the removed service will have their
+	 * dependencies resolved again.
+	 *
+	 * @param service
+	 *   the type of the service to remove
+	 * @return
+	 *   if a service was removed
+	 * @throws ServiceException
+	 *   if the service is not stopped
+	 */
+	boolean remove(Class<? extends ManagedService> service);
+
+	/**
+	 * Supervise services using the given policy. Services that fail to
+	 * start, or whose {@link RunningService#onStop()} errors, are restarted
+	 * according to the policy. Services that depend on a crashed service are
+	 * stopped and started again together with it.
+	 *
+	 * @param policy
+	 *   the policy to use, {@link RestartPolicy#none()} to disable
+	 *   supervision
+	 */
+	void supervise(RestartPolicy policy);
+
 	/**
 	 * Start the given service. Will check if it has already been started
 	 * and refuse to start if it has.
@@ -82,10 +108,24 @@ public interface ServiceManager
 	 */
 	Flux<ServiceStatus> services();
 
+	/**
+	 * Get an immutable snapshot of the dependencies between services.
+	 *
+	 * @return
+	 */
+	ServiceGraph getGraph();
+
 	/**
 	 * Get a flux that will receive updates to service statuses.
 	 *
 	 * @return
 	 */
 	Flux<ServiceStatus> serviceStatus();
+
+	/**
+	 * Release the threads used to start services. Services should be
+	 * stopped before this is called, services can not be started
+	 * afterwards.
+	 */
+	void dispose();
 }
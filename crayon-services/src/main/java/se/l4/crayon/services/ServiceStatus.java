@@ -1,5 +1,6 @@
 package se.l4.crayon.services;
 
+import java.time.Duration;
 import java.util.Optional;
 
 /**
@@ -49,4 +50,56 @@ public interface ServiceStatus
 	 *   exception that it failed with, or {@code null} if no failure
 	 */
 	Optional<Throwable> getFailedWith();
+
+	/**
+	 * Get the state the service was in before this state.
+	 *
+	 * @return
+	 *   previous state, or empty if this is the initial state of the service
+	 */
+	Optional<State> getPreviousState();
+
+	/**
+	 * Get when the service entered this state. The timestamp is taken from
+	 * {@link System#nanoTime()} and can only be compared to other timestamps
+	 * from the same JVM.
+	 *
+	 * @return
+	 *   monotonic timestamp in nanoseconds
+	 */
+	long getTimestamp();
+
+	/**
+	 * Get how long the service was in the {@link #getPreviousState() previous
+	 * state}. For a service that has just become {@link State#RUNNING} this
+	 * is the time it took to start the service.
+	 *
+	 * @return
+	 *   time spent in the previous state
+	 */
+	Duration getDuration();
+
+	/**
+	 * Get the number of times the service has been started again after its
+	 * first start.
+	 *
+	 * @return
+	 */
+	int getRestartCount();
+
+	/**
+	 * Get the number of times the service has failed.
+	 *
+	 * @return
+	 */
+	int getFailureCount();
+
+	/**
+	 * Get the number of times the service has failed in a row. Reset when
+	 * the service is stopped or has been running long enough to be
+	 * considered healthy by the {@link RestartPolicy}.
+	 *
+	 * @return
+	 */
+	int getConsecutiveFailures();
 }
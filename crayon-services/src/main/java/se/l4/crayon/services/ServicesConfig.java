@@ -0,0 +1,153 @@
+package se.l4.crayon.services;
+
+import java.time.Duration;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.Pattern;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import se.l4.exobytes.AnnotationSerialization;
+import se.l4.exobytes.Expose;
+
+/**
+ * Configuration used with {@link ServiceManager}, bound to {@code services}.
+ */
+@AnnotationSerialization
+public class ServicesConfig
+{
+	/**
+	 * The maximum number of services that are started at the same time.
+	 */
+	@Expose
+	@Min(1)
+	private int maxConcurrency = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	/**
+	 * If services should be started on virtual threads, if the JVM supports
+	 * them.
+	 */
+	@Expose
+	private boolean virtualThreads = false;
+
+	/**
+	 * The maximum time in milliseconds to wait for a single service to stop.
+	 */
+	@Expose
+	@Min(1)
+	private long stopTimeout = 30_000;
+
+	/**
+	 * The maximum time in milliseconds to wait for all services to stop when
+	 * the application shuts down.
+	 */
+	@Expose
+	@Min(1)
+	private long shutdownTimeout = 60_000;
+
+	/**
+	 * If failed services should be restarted automatically.
+	 */
+	@Expose
+	private boolean supervise = false;
+
+	/**
+	 * Delay in milliseconds before the first restart of a failed service.
+	 */
+	@Expose
+	@Min(0)
+	private long restartMinBackoff = 1_000;
+
+	/**
+	 * Maximum delay in milliseconds between restarts of a failed service.
+	 */
+	@Expose
+	@Min(0)
+	private long restartMaxBackoff = 60_000;
+
+	/**
+	 * Fraction of the restart delay that is random.
+	 */
+	@Expose
+	@DecimalMin("0")
+	@DecimalMax("1")
+	private double restartJitter = 0.5;
+
+	/**
+	 * Number of restarts in a row before giving up, {@code -1} to never give
+	 * up.
+	 */
+	@Expose
+	@Min(-1)
+	private int maxRestarts = -1;
+
+	/**
+	 * The number of status events to buffer for a subscriber that can not
+	 * keep up.
+	 */
+	@Expose
+	@Min(1)
+	private int eventBuffer = 256;
+
+	/**
+	 * What to do when the event buffer of a subscriber is full, one of
+	 * {@code DROP_OLDEST}, {@code DROP_LATEST} or {@code ERROR}.
+	 */
+	@Expose
+	@Pattern(regexp = "DROP_OLDEST|DROP_LATEST|ERROR")
+	private String eventOverflow = "DROP_OLDEST";
+
+	public int getMaxConcurrency()
+	{
+		return maxConcurrency;
+	}
+
+	public boolean isVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	public Duration getStopTimeout()
+	{
+		return Duration.ofMillis(stopTimeout);
+	}
+
+	public Duration getShutdownTimeout()
+	{
+		return Duration.ofMillis(shutdownTimeout);
+	}
+
+	public int getEventBuffer()
+	{
+		return eventBuffer;
+	}
+
+	public BufferOverflowStrategy getEventOverflow()
+	{
+		return BufferOverflowStrategy.valueOf(eventOverflow);
+	}
+
+	public boolean isSupervise()
+	{
+		return supervise;
+	}
+
+	/**
+	 * Get the policy used to restart failed services.
+	 *
+	 * @return
+	 *   policy, {@link RestartPolicy#none()} if services are not supervised
+	 */
+	public RestartPolicy getRestartPolicy()
+	{
+		if(! supervise)
+		{
+			return RestartPolicy.none();
+		}
+
+		return RestartPolicy.exponential(Duration.ofMillis(restartMinBackoff), Duration.ofMillis(restartMaxBackoff))
+			.withJitter(restartJitter)
+			.withMaxRestarts(maxRestarts);
+	}
+}
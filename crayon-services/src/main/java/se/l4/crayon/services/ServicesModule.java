@@ -1,16 +1,27 @@
 package se.l4.crayon.services;
 
+import java.util.Optional;
+
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.OptionalBinder;
 
 import se.l4.crayon.contributions.Contributions;
 import se.l4.crayon.module.CrayonModule;
+import se.l4.crayon.services.internal.LazyServiceStarter;
+import se.l4.crayon.services.internal.ServiceHealthImpl;
 import se.l4.crayon.services.internal.ServiceManagerImpl;
+import se.l4.crayon.services.internal.ServiceSchedulers;
 
 /**
  * Module configuration for services. Binds {@link ServiceManager} to its
  * default implementation.
  *
+ * <p>
+ * If {@link LazyServicesModule} is installed services are started on demand,
+ * the first time something that depends on them is provisioned.
+ * If {@link ServicesConfig#isSupervise() supervise} is enabled failed
+ * services are restarted with an exponential backoff.
  */
 public class ServicesModule
 	extends CrayonModule
@@ -19,19 +30,48 @@ public class ServicesModule
 	public void configure()
 	{
 		bindContributions(ServiceContribution.class);
+
+		// Bound by LazyServicesModule if services are started on demand
+		OptionalBinder.newOptionalBinder(binder(), LazyServiceStarter.class);
+
+		bindConfig(ServicesConfig.class)
+			.withDefault(new ServicesConfig())
+			.to("services");
 	}
 
 	@Provides
 	@Singleton
 	public ServiceManager provideServices(
-		@ServiceContribution Contributions contributions
+		@ServiceContribution Contributions contributions,
+		ServicesConfig config,
+		Optional<LazyServiceStarter> lazyStarter
 	)
 	{
-		ServiceManager manager = new ServiceManagerImpl();
+		int maxConcurrency = config.getMaxConcurrency();
+		ServiceManager manager = new ServiceManagerImpl(
+			maxConcurrency,
+			config.isVirtualThreads()
+				? ServiceSchedulers.virtualThreads(maxConcurrency)
+				: ServiceSchedulers.boundedElastic(maxConcurrency),
+			config.getStopTimeout(),
+			config.getEventBuffer(),
+			config.getEventOverflow()
+		);
+
+		manager.supervise(config.getRestartPolicy());
 
 		// Run contribution making ServiceCollector available
 		contributions.run(binder -> binder.bind(ServiceCollector.class).toInstance(manager::add));
 
+		lazyStarter.ifPresent(starter -> starter.activate(manager));
+
 		return manager;
 	}
+
+	@Provides
+	@Singleton
+	public ServiceHealth provideHealth(ServiceManager manager, ServicesConfig config)
+	{
+		return new ServiceHealthImpl(manager, config.getRestartPolicy());
+	}
 }
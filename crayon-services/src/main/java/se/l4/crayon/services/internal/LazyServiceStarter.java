@@ -0,0 +1,121 @@
+package se.l4.crayon.services.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Binding;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.HasDependencies;
+import com.google.inject.spi.ProvisionListener;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.ServiceManager;
+import se.l4.crayon.services.ServiceStatus;
+
+/**
+ * Listener used when services are started on demand. When a binding of a
+ * {@link ManagedService}, or a binding that depends on one, is provisioned
+ * the service is started together with its dependencies.
+ *
+ * <p>
+ * Provisioning waits until the services are running, so what is provisioned
+ * can use them directly. On threads that must not block, such as the ones of
+ * {@link Schedulers#parallel()}, services are started in the background and
+ * {@link ServiceManager#start(Class)} can be used to wait for them.
+ *
+ * <p>
+ * Only dependencies on types that implement {@link ManagedService} are
+ * detected. Every binding is only checked the first time it is provisioned,
+ * a singleton that was created before the manager was activated is
+ * therefore only started via something that depends on it.
+ */
+public class LazyServiceStarter
+	implements ProvisionListener
+{
+	private static final Logger logger = LoggerFactory.getLogger(ServiceManager.class);
+
+	private final Map<Binding<?>, Boolean> checked;
+	private volatile ServiceManager manager;
+
+	public LazyServiceStarter()
+	{
+		checked = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Activate starting of services via the given manager. Called once all
+	 * services have been added to the manager.
+	 *
+	 * @param manager
+	 */
+	public void activate(ServiceManager manager)
+	{
+		this.manager = manager;
+	}
+
+	@Override
+	public <T> void onProvision(ProvisionInvocation<T> provision)
+	{
+		ServiceManager manager = this.manager;
+		if(manager == null) return;
+
+		Binding<T> binding = provision.getBinding();
+		if(checked.containsKey(binding))
+		{
+			return;
+		}
+
+		startIfService(manager, binding.getKey().getTypeLiteral().getRawType());
+
+		if(binding instanceof HasDependencies)
+		{
+			for(Dependency<?> dependency : ((HasDependencies) binding).getDependencies())
+			{
+				startIfService(manager, dependency.getKey().getTypeLiteral().getRawType());
+			}
+		}
+
+		checked.put(binding, Boolean.TRUE);
+	}
+
+	private void startIfService(ServiceManager manager, Class<?> type)
+	{
+		if(! ManagedService.class.isAssignableFrom(type))
+		{
+			return;
+		}
+
+		Mono<ServiceStatus> start = manager.start(type.asSubclass(ManagedService.class))
+			.doOnNext(this::logIfFailed)
+			.onErrorResume(error -> {
+				logger.warn("Could not start {} on demand; {}", type.getName(), error.getMessage(), error);
+				return Mono.empty();
+			});
+
+		if(Schedulers.isInNonBlockingThread())
+		{
+			start.subscribe();
+		}
+		else
+		{
+			start.block();
+		}
+	}
+
+	private void logIfFailed(ServiceStatus status)
+	{
+		if(status.getState() == ServiceStatus.State.FAILED)
+		{
+			logger.warn(
+				"Could not start {} on demand",
+				status.getService(),
+				status.getFailedWith().orElse(null)
+			);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package se.l4.crayon.services.internal;
+
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.ImmutableMap;
+import org.eclipse.collections.api.set.ImmutableSet;
+
+import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.ServiceGraph;
+
+/**
+ * Implementation of {@link ServiceGraph}.
+ */
+public class ServiceGraphImpl
+	implements ServiceGraph
+{
+	private final ImmutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependencies;
+	private final ImmutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependents;
+
+	public ServiceGraphImpl(
+		ImmutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependencies,
+		ImmutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependents
+	)
+	{
+		this.dependencies = dependencies;
+		this.dependents = dependents;
+	}
+
+	@Override
+	public ImmutableSet<Class<? extends ManagedService>> getServices()
+	{
+		return dependencies.keysView().toSet().toImmutable();
+	}
+
+	@Override
+	public ImmutableSet<Class<? extends ManagedService>> getDependencies(Class<? extends ManagedService> service)
+	{
+		return dependencies.getIfAbsentValue(service, Sets.immutable.empty());
+	}
+
+	@Override
+	public ImmutableSet<Class<? extends ManagedService>> getDependents(Class<? extends ManagedService> service)
+	{
+		return dependents.getIfAbsentValue(service, Sets.immutable.empty());
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + "{dependencies=" + dependencies + "}";
+	}
+}
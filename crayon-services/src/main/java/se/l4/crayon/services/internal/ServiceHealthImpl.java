@@ -0,0 +1,101 @@
+package se.l4.crayon.services.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.RestartPolicy;
+import se.l4.crayon.services.ServiceHealth;
+import se.l4.crayon.services.ServiceManager;
+import se.l4.crayon.services.ServiceStatus;
+
+/**
+ * Implementation of {@link ServiceHealth} that keeps the latest status of
+ * every service and recalculates the health when a status changes. A
+ * failed service only affects liveness if the {@link RestartPolicy} will not
+ * restart it.
+ */
+public class ServiceHealthImpl
+	implements ServiceHealth
+{
+	private final RestartPolicy restartPolicy;
+	private final Map<ManagedService, ServiceStatus> statuses;
+
+	private volatile boolean ready;
+	private volatile boolean live;
+
+	public ServiceHealthImpl(ServiceManager manager)
+	{
+		this(manager, RestartPolicy.none());
+	}
+
+	public ServiceHealthImpl(ServiceManager manager, RestartPolicy restartPolicy)
+	{
+		this.restartPolicy = restartPolicy;
+
+		statuses = new ConcurrentHashMap<>();
+		live = true;
+
+		// Listen for changes before taking the initial snapshot
+		manager.serviceStatus()
+			.subscribe(this::update);
+
+		manager.services()
+			.subscribe(this::update);
+
+		recalculate();
+	}
+
+	private void update(ServiceStatus status)
+	{
+		// Keep the newest status, events may race with the initial snapshot
+		statuses.merge(
+			status.getService(),
+			status,
+			(a, b) -> b.getTimestamp() - a.getTimestamp() >= 0 ? b : a
+		);
+
+		recalculate();
+	}
+
+	private synchronized void recalculate()
+	{
+		boolean ready = true;
+		boolean live = true;
+		for(ServiceStatus status : statuses.values())
+		{
+			ServiceStatus.State state = status.getState();
+			if(state == ServiceStatus.State.FAILED
+				&& ! restartPolicy.willRestart(status.getConsecutiveFailures()))
+			{
+				live = false;
+			}
+
+			if(state != ServiceStatus.State.RUNNING)
+			{
+				ready = false;
+			}
+		}
+
+		this.ready = ready;
+		this.live = live;
+	}
+
+	@Override
+	public boolean isReady()
+	{
+		return ready;
+	}
+
+	@Override
+	public boolean isLive()
+	{
+		return live;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ServiceHealth{ready=" + ready + ", live=" + live + "}";
+	}
+}
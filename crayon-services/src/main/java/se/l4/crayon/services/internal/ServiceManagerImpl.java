@@ -1,39 +1,190 @@
 package se.l4.crayon.services.internal;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.collections.api.factory.Maps;
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.map.MutableMap;
+import org.eclipse.collections.api.set.ImmutableSet;
+import org.eclipse.collections.api.set.MutableSet;
+import org.eclipse.collections.impl.map.mutable.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.ReplayProcessor;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
 import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.RestartPolicy;
 import se.l4.crayon.services.RunningService;
+import se.l4.crayon.services.ServiceException;
+import se.l4.crayon.services.ServiceGraph;
 import se.l4.crayon.services.ServiceManager;
 import se.l4.crayon.services.ServiceStatus;
+import se.l4.crayon.services.ServicesConfig;
 import se.l4.ylem.types.matching.ClassMatchingConcurrentHashMap;
 import se.l4.ylem.types.matching.MatchedType;
-import se.l4.ylem.types.matching.MutableClassMatchingMap;
+import se.l4.ylem.types.matching.TypeHierarchy;
 
 /**
  * Implementation of {@link ServiceManager}.
+ *
+ * <p>
+ * Services are started on a dedicated {@link Scheduler} so that services
+ * with a blocking {@link ManagedService#start()} do not block the caller.
+ * Services that do not depend on each other are started in parallel, with
+ * at most {@code maxConcurrency} services starting at the same time. The
+ * scheduler is owned by the manager and is disposed by {@link #dispose()}.
  */
 public class ServiceManagerImpl
 	implements ServiceManager
 {
-	private final MutableClassMatchingMap<ManagedService, Service> services;
-	private volatile boolean needsNewDependencies;
+	private static final Logger logger = LoggerFactory.getLogger(ServiceManager.class);
+
+	private static final Duration DEFAULT_STOP_TIMEOUT = Duration.ofSeconds(30);
 
-	private final ReplayProcessor<ServiceStatus> events;
-	private final FluxSink<ServiceStatus> eventsSink;
+	/**
+	 * Retry emitting if another thread is emitting at the same time.
+	 */
+	private static final Sinks.EmitFailureHandler RETRY_NON_SERIALIZED =
+		(signal, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+
+	/**
+	 * Services available. Only modified while holding the monitor of this
+	 * manager.
+	 */
+	private final ServiceIndex services;
+
+	/**
+	 * Services that declare a certain dependency, used to find the services
+	 * that need to resolve their dependencies again when a service is added
+	 * or removed. Guarded by the monitor of this manager.
+	 */
+	private final Map<Class<? extends ManagedService>, Set<Service>> declaredBy;
+
+	/**
+	 * Declared dependencies indexed by every type in their hierarchy. A
+	 * dependency is resolved to the service registered for the closest type
+	 * in its hierarchy, so this finds the dependencies a new service may be a
+	 * better match for. Guarded by the monitor of this manager.
+	 */
+	private final Map<Class<?>, Set<Class<? extends ManagedService>>> declaredWithin;
+
+	/**
+	 * Snapshot of the graph, {@code null} if it needs to be created.
+	 */
+	private volatile ServiceGraph graph;
+
+	private final int maxConcurrency;
+	private final Scheduler startScheduler;
+	private final Duration stopTimeout;
+
+	private volatile RestartPolicy restartPolicy;
+
+	/**
+	 * Sink for status events, replays the latest event to new subscribers.
+	 */
+	private final Sinks.Many<ServiceStatus> events;
+	private final int eventBuffer;
+	private final BufferOverflowStrategy eventOverflow;
 
 	public ServiceManagerImpl()
 	{
-		services = new ClassMatchingConcurrentHashMap<>();
+		this(new ServicesConfig().getMaxConcurrency());
+	}
 
-		events = ReplayProcessor.create(0);
-		eventsSink = events.sink();
+	private ServiceManagerImpl(int maxConcurrency)
+	{
+		this(maxConcurrency, ServiceSchedulers.boundedElastic(maxConcurrency));
+	}
+
+	public ServiceManagerImpl(int maxConcurrency, Scheduler startScheduler)
+	{
+		this(maxConcurrency, startScheduler, DEFAULT_STOP_TIMEOUT);
+	}
+
+	/**
+	 * Create a manager that starts services on the given scheduler.
+	 *
+	 * @param maxConcurrency
+	 *   the maximum number of services to start at the same time when
+	 *   starting all services
+	 * @param startScheduler
+	 *   scheduler that {@link ManagedService#start()} is invoked on
+	 * @param stopTimeout
+	 *   the maximum time to wait for a single service to stop, a service
+	 *   that does not stop in time is marked as failed
+	 */
+	public ServiceManagerImpl(
+		int maxConcurrency,
+		Scheduler startScheduler,
+		Duration stopTimeout
+	)
+	{
+		this(maxConcurrency, startScheduler, stopTimeout, Queues.SMALL_BUFFER_SIZE, BufferOverflowStrategy.DROP_OLDEST);
+	}
+
+	/**
+	 * Create a manager that starts services on the given scheduler and
+	 * buffers a limited number of status events for every subscriber.
+	 *
+	 * @param maxConcurrency
+	 *   the maximum number of services to start at the same time when
+	 *   starting all services
+	 * @param startScheduler
+	 *   scheduler that {@link ManagedService#start()} is invoked on
+	 * @param stopTimeout
+	 *   the maximum time to wait for a single service to stop, a service
+	 *   that does not stop in time is marked as failed
+	 * @param eventBuffer
+	 *   the number of status events to buffer for a subscriber that can not
+	 *   keep up
+	 * @param eventOverflow
+	 *   what to do when the buffer of a subscriber is full
+	 */
+	public ServiceManagerImpl(
+		int maxConcurrency,
+		Scheduler startScheduler,
+		Duration stopTimeout,
+		int eventBuffer,
+		BufferOverflowStrategy eventOverflow
+	)
+	{
+		if(maxConcurrency < 1)
+		{
+			throw new IllegalArgumentException("maxConcurrency must be at least 1");
+		}
+
+		this.maxConcurrency = maxConcurrency;
+		this.startScheduler = startScheduler;
+		this.stopTimeout = stopTimeout;
+
+		services = new ServiceIndex();
+		declaredBy = new HashMap<>();
+		declaredWithin = new HashMap<>();
+		restartPolicy = RestartPolicy.none();
+
+		if(eventBuffer < 1)
+		{
+			throw new IllegalArgumentException("eventBuffer must be at least 1");
+		}
+
+		this.eventBuffer = eventBuffer;
+		this.eventOverflow = eventOverflow;
+		events = Sinks.many().replay().latest();
 	}
 
 	@Override
@@ -41,11 +192,238 @@ public class ServiceManagerImpl
 	{
 		synchronized(this)
 		{
-			services.put(service.getClass(), new Service(service, this));
-			needsNewDependencies = true;
+			Class<? extends ManagedService> type = service.getClass();
+
+			Service existing = getExact(type);
+			if(existing != null)
+			{
+				unlink(existing);
+			}
+
+			Service info = new Service(service, this);
+			services.put(type, info);
+
+			// Resolve what the new service depends on
+			for(Class<? extends ManagedService> c : service.getDependencies())
+			{
+				declare(c, info);
+			}
+
+			resolve(info);
+
+			// The new service may be a better match for dependencies within its type
+			Set<Class<? extends ManagedService>> declared = declaredWithin.get(type);
+			if(declared != null)
+			{
+				for(Class<? extends ManagedService> c : declared)
+				{
+					for(Service dependent : declaredBy.get(c))
+					{
+						if(dependent != info)
+						{
+							resolve(dependent);
+						}
+					}
+				}
+			}
+
+			graph = null;
+		}
+	}
+
+	@Override
+	public boolean remove(Class<? extends ManagedService> service)
+	{
+		synchronized(this)
+		{
+			Service info = getExact(service);
+			if(info == null)
+			{
+				return false;
+			}
+
+			ServiceStatus.State state = info.currentStatus().getState();
+			if(state != ServiceStatus.State.STOPPED && state != ServiceStatus.State.FAILED)
+			{
+				throw new ServiceException("Service " + info.service + " must be stopped before being removed, currently " + state);
+			}
+
+			services.remove(service);
+
+			unlink(info);
+
+			graph = null;
+			return true;
+		}
+	}
+
+	/**
+	 * Get the service registered for exactly the given type.
+	 */
+	private Service getExact(Class<? extends ManagedService> type)
+	{
+		Optional<Service> info = services.getBest(type);
+		if(info.isPresent() && info.get().service.getClass() == type)
+		{
+			return info.get();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Remove all edges of the given service and resolve the dependencies of
+	 * services that depended on it. Runs in O(degree) of the service.
+	 */
+	private void unlink(Service info)
+	{
+		for(Service dependency : info.outgoingDependencies)
+		{
+			dependency.incomingDependencies = dependency.incomingDependencies.newWithout(info);
+		}
+
+		for(Class<? extends ManagedService> c : info.service.getDependencies())
+		{
+			undeclare(c, info);
+		}
+
+		ImmutableSet<Service> dependents = info.incomingDependencies;
+
+		info.outgoingDependencies = Sets.immutable.empty();
+		info.incomingDependencies = Sets.immutable.empty();
+
+		for(Service dependent : dependents)
+		{
+			resolve(dependent);
+		}
+	}
+
+	/**
+	 * Record that the given service depends on a type, indexing the type by
+	 * its hierarchy the first time it is declared.
+	 */
+	private void declare(Class<? extends ManagedService> type, Service info)
+	{
+		Set<Service> declaring = declaredBy.get(type);
+		if(declaring == null)
+		{
+			declaring = new HashSet<>();
+			declaredBy.put(type, declaring);
+
+			TypeHierarchy.visitHierarchy(type, t -> {
+				declaredWithin.computeIfAbsent(t, k -> new HashSet<>()).add(type);
+				return true;
+			});
+		}
+
+		declaring.add(info);
+	}
+
+	/**
+	 * Remove that the given service depends on a type, removing the type
+	 * from the index when no service depends on it.
+	 */
+	private void undeclare(Class<? extends ManagedService> type, Service info)
+	{
+		Set<Service> declaring = declaredBy.get(type);
+		if(declaring == null || ! declaring.remove(info) || ! declaring.isEmpty())
+		{
+			return;
+		}
+
+		declaredBy.remove(type);
+
+		TypeHierarchy.visitHierarchy(type, t -> {
+			Set<Class<? extends ManagedService>> declared = declaredWithin.get(t);
+			if(declared != null)
+			{
+				declared.remove(type);
+				if(declared.isEmpty())
+				{
+					declaredWithin.remove(t);
+				}
+			}
+
+			return true;
+		});
+	}
+
+	/**
+	 * Resolve the dependencies of the given service and update the edges
+	 * that changed. Runs in O(degree) of the service. Dependencies that do
+	 * not match a service are skipped, the service is resolved again when a
+	 * matching service is added.
+	 */
+	private void resolve(Service info)
+	{
+		MutableSet<Service> resolved = Sets.mutable.empty();
+		for(Class<? extends ManagedService> c : info.service.getDependencies())
+		{
+			Optional<Service> dependency = services.getBest(c);
+			if(dependency.isPresent())
+			{
+				resolved.add(dependency.get());
+			}
+		}
+
+		ImmutableSet<Service> previous = info.outgoingDependencies;
+		for(Service dependency : previous)
+		{
+			if(! resolved.contains(dependency))
+			{
+				dependency.incomingDependencies = dependency.incomingDependencies.newWithout(info);
+			}
+		}
+
+		for(Service dependency : resolved)
+		{
+			if(! previous.contains(dependency))
+			{
+				dependency.incomingDependencies = dependency.incomingDependencies.newWith(info);
+			}
+		}
+
+		info.outgoingDependencies = resolved.toImmutable();
+	}
+
+	@Override
+	public ServiceGraph getGraph()
+	{
+		ServiceGraph current = graph;
+		if(current != null)
+		{
+			return current;
+		}
+
+		synchronized(this)
+		{
+			if(graph == null)
+			{
+				MutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependencies = Maps.mutable.empty();
+				MutableMap<Class<? extends ManagedService>, ImmutableSet<Class<? extends ManagedService>>> dependents = Maps.mutable.empty();
+
+				for(MatchedType<?, Service> mt : services.entries())
+				{
+					Service info = mt.getData();
+					Class<? extends ManagedService> type = info.service.getClass();
+
+					dependencies.put(type, info.outgoingDependencies.collect(d -> d.service.getClass()));
+					dependents.put(type, info.incomingDependencies.collect(d -> d.service.getClass()));
+				}
+
+				graph = new ServiceGraphImpl(dependencies.toImmutable(), dependents.toImmutable());
+			}
+
+			return graph;
 		}
 	}
 
+	@Override
+	public void supervise(RestartPolicy policy)
+	{
+		this.restartPolicy = Objects.requireNonNull(policy);
+	}
+
 	@Override
 	public Mono<ServiceStatus> start(Class<? extends ManagedService> service)
 	{
@@ -71,8 +449,98 @@ public class ServiceManagerImpl
 	@Override
 	public Flux<ServiceStatus> startAll()
 	{
-		return Flux.fromIterable(services.entries())
-			.flatMap(mt -> mt.getData().start());
+		return Flux.defer(() -> {
+			long started = System.nanoTime();
+
+			return Flux.fromIterable(services.entries())
+				.flatMap(mt -> mt.getData().start(), maxConcurrency)
+				.doOnComplete(() -> logStartup(started));
+		});
+	}
+
+	/**
+	 * Log the total time it took to start all services together with the
+	 * critical path, the chain of dependencies that took the longest to
+	 * start.
+	 *
+	 * @param started
+	 */
+	private void logStartup(long started)
+	{
+		if(! logger.isInfoEnabled()) return;
+
+		long total = System.nanoTime() - started;
+
+		Map<Service, Long> paths = new HashMap<>();
+		Service slowest = null;
+		long slowestPath = 0;
+		for(MatchedType<?, Service> mt : services.entries())
+		{
+			Service service = mt.getData();
+			long path = criticalPath(service, paths, new HashSet<>());
+			if(slowest == null || path > slowestPath)
+			{
+				slowest = service;
+				slowestPath = path;
+			}
+		}
+
+		if(slowest == null) return;
+
+		List<String> chain = new ArrayList<>();
+		for(Service current = slowest; current != null; current = slowestDependency(current, paths))
+		{
+			chain.add(0, current.service.toString());
+		}
+
+		logger.info(
+			"Started services in {} ms, critical path {} ms: {}",
+			TimeUnit.NANOSECONDS.toMillis(total),
+			TimeUnit.NANOSECONDS.toMillis(slowestPath),
+			String.join(" -> ", chain)
+		);
+	}
+
+	/**
+	 * Calculate the time it took to start the given service and the slowest
+	 * chain of its dependencies.
+	 */
+	private long criticalPath(Service service, Map<Service, Long> paths, Set<Service> visiting)
+	{
+		Long cached = paths.get(service);
+		if(cached != null) return cached;
+
+		long max = 0;
+		if(visiting.add(service))
+		{
+			for(Service dependency : service.outgoingDependencies)
+			{
+				max = Math.max(max, criticalPath(dependency, paths, visiting));
+			}
+
+			visiting.remove(service);
+		}
+
+		long result = max + service.startDuration;
+		paths.put(service, result);
+		return result;
+	}
+
+	private Service slowestDependency(Service service, Map<Service, Long> paths)
+	{
+		Service result = null;
+		long max = -1;
+		for(Service dependency : service.outgoingDependencies)
+		{
+			long path = paths.getOrDefault(dependency, 0l);
+			if(path > max)
+			{
+				result = dependency;
+				max = path;
+			}
+		}
+
+		return result;
 	}
 
 	@Override
@@ -82,77 +550,117 @@ public class ServiceManagerImpl
 			.flatMap(mt -> mt.getData().stop());
 	}
 
+	@Override
+	public void dispose()
+	{
+		startScheduler.dispose();
+	}
+
 	@Override
 	public Mono<ServiceStatus> get(Class<? extends ManagedService> service)
 	{
 		return Mono.fromSupplier(() -> services.getBest(service).orElse(null))
-			.map(s -> s.currentStatus);
+			.map(Service::currentStatus);
 	}
 
 	@Override
 	public Flux<ServiceStatus> serviceStatus()
 	{
-		return events;
+		// Every subscriber gets its own bounded buffer so a slow subscriber does not affect others
+		return events.asFlux()
+			.onBackpressureBuffer(
+				eventBuffer,
+				dropped -> logger.debug("Dropped status event for slow subscriber: {}", dropped),
+				eventOverflow
+			);
+	}
+
+	/**
+	 * Publish a status event.
+	 *
+	 * @param status
+	 */
+	private void emit(ServiceStatus status)
+	{
+		events.emitNext(status, RETRY_NON_SERIALIZED);
 	}
 
 	@Override
 	public Flux<ServiceStatus> services()
 	{
 		return Flux.fromIterable(services.entries())
-			.map(service -> service.getData().currentStatus);
+			.map(service -> service.getData().currentStatus());
 	}
 
-	private void maybeRecalculateDependencies()
+	/**
+	 * Index of services that supports removing a single service without
+	 * copying the index.
+	 */
+	private static class ServiceIndex
+		extends ClassMatchingConcurrentHashMap<ManagedService, Service>
 	{
-		synchronized(this)
-		{
-			if(! needsNewDependencies) return;
+		private final ConcurrentHashMap<Class<? extends ManagedService>, Service> backingMap;
 
-			// Clear dependencies
-			for(MatchedType<?, Service> mt : services.entries())
-			{
-				Service info = mt.getData();
-				info.incomingDependencies.clear();
-				info.outgoingDependencies.clear();
-			}
-
-			// Copy dependencies
-			for(MatchedType<?, Service> mt : services.entries())
-			{
-				Service info = mt.getData();
+		public ServiceIndex()
+		{
+			this(new ConcurrentHashMap<>());
+		}
 
-				for(Class<? extends ManagedService> c : info.service.getDependencies())
-				{
-					Optional<Service> service = services.getBest(c);
-					if(! service.isPresent())
-					{
-						// TODO: What do we do if the service doesn't exist?
-						continue;
-					}
+		private ServiceIndex(ConcurrentHashMap<Class<? extends ManagedService>, Service> backingMap)
+		{
+			super(backingMap);
 
-					info.outgoingDependencies.add(service.get());
-					service.get().incomingDependencies.add(info);
-				}
-			}
+			this.backingMap = backingMap;
+		}
 
-			needsNewDependencies = false;
+		/**
+		 * Remove the service registered for exactly the given type.
+		 *
+		 * @param type
+		 */
+		public void remove(Class<? extends ManagedService> type)
+		{
+			backingMap.remove(type);
 		}
 	}
 
 	/**
 	 * Inner implementation of {@link ServiceStatus}.
+	 *
+	 * <p>
+	 * The state of a service is kept in an immutable {@link Snapshot} that
+	 * is replaced via compare-and-set. A transition to {@code STARTING} or
+	 * {@code STOPPING} publishes a snapshot containing the cached
+	 * {@link Mono} performing the transition, so concurrent calls to
+	 * {@link #start()} or {@link #stop()} share the in-flight transition
+	 * instead of starting a new one. Only the transition that installed a
+	 * snapshot can complete it.
 	 */
 	private static class Service
 	{
 		private final ManagedService service;
 		private final ServiceManagerImpl manager;
 
-		private ServiceStatus currentStatus;
-		private Mono<ServiceStatus> currentChange;
-		private RunningService runningService;
+		private final AtomicReference<Snapshot> state;
+
+		/**
+		 * Time in nanoseconds the last start of this service took, not
+		 * including the time spent starting dependencies.
+		 */
+		private volatile long startDuration;
 
-		private final Set<Service> incomingDependencies;
-		private final Set<Service> outgoingDependencies;
+		/**
+		 * Edges of the dependency graph. Replaced while holding the monitor
+		 * of the manager, read without locking.
+		 */
+		private volatile ImmutableSet<Service> incomingDependencies;
+		private volatile ImmutableSet<Service> outgoingDependencies;
+
+		/**
+		 * Services that were stopped because this service crashed, started
+		 * again when this service is running.
+		 */
+		private final AtomicReference<ImmutableSet<Service>> pendingDependents;
 
 		public Service(ManagedService service, ServiceManagerImpl manager)
 		{
@@ -160,124 +668,444 @@ public class ServiceManagerImpl
 
 			this.manager = manager;
 
-			currentStatus = new ServiceStatusImpl(this, ServiceStatus.State.STOPPED, null);
+			state = new AtomicReference<>(new Snapshot(
+				new ServiceStatusImpl(this, ServiceStatus.State.STOPPED, null, null, System.nanoTime(), 0, 0, 0, 0),
+				null,
+				0,
+				0,
+				0
+			));
+
+			pendingDependents = new AtomicReference<>(Sets.immutable.empty());
 
-			this.outgoingDependencies = new HashSet<>();
-			this.incomingDependencies = new HashSet<>();
+			this.outgoingDependencies = Sets.immutable.empty();
+			this.incomingDependencies = Sets.immutable.empty();
 		}
 
-		private ServiceStatus switchState(ServiceStatus.State state, Throwable failedWith)
+		/**
+		 * Get the current status of the service.
+		 *
+		 * @return
+		 */
+		public ServiceStatus currentStatus()
 		{
-			currentStatus = new ServiceStatusImpl(this, state, failedWith);
-			manager.eventsSink.next(currentStatus);
-			return currentStatus;
+			return state.get().status;
 		}
 
-		public Mono<ServiceStatus> start()
+		/**
+		 * Create the snapshot that follows the given snapshot.
+		 */
+		private Snapshot next(
+			Snapshot from,
+			ServiceStatus.State newState,
+			Throwable failedWith,
+			RunningService running
+		)
 		{
-			return Mono.defer(() -> {
-				ServiceStatus.State state = currentStatus.getState();
-				if(state == ServiceStatus.State.RUNNING)
+			int starts = from.starts + (newState == ServiceStatus.State.STARTING ? 1 : 0);
+			int failures = from.failures + (newState == ServiceStatus.State.FAILED ? 1 : 0);
+
+			long timestamp = System.nanoTime();
+			long duration = timestamp - from.status.getTimestamp();
+
+			int consecutiveFailures;
+			switch(newState)
+			{
+				case FAILED:
+					// A service that ran long enough is considered healthy
+					boolean healthy = from.status.getState() == ServiceStatus.State.RUNNING
+						&& duration >= manager.restartPolicy.getResetAfter().toNanos();
+					consecutiveFailures = healthy ? 1 : from.consecutiveFailures + 1;
+					break;
+				case STOPPED:
+					consecutiveFailures = 0;
+					break;
+				default:
+					consecutiveFailures = from.consecutiveFailures;
+			}
+
+			ServiceStatus status = new ServiceStatusImpl(
+				this,
+				newState,
+				failedWith,
+				from.status.getState(),
+				timestamp,
+				duration,
+				Math.max(0, starts - 1),
+				failures,
+				consecutiveFailures
+			);
+
+			return new Snapshot(status, running, starts, failures, consecutiveFailures);
+		}
+
+		/**
+		 * Try to switch from the given snapshot to the next one, publishing
+		 * an event if successful.
+		 *
+		 * @return
+		 *   if the switch was made
+		 */
+		private boolean trySwitch(Snapshot from, Snapshot to)
+		{
+			if(! state.compareAndSet(from, to))
+			{
+				return false;
+			}
+
+			manager.emit(to.status);
+			return true;
+		}
+
+		/**
+		 * Complete a transition that was started by installing
+		 * {@code owner}.
+		 *
+		 * @return
+		 *   the resulting status
+		 */
+		private ServiceStatus complete(
+			Snapshot owner,
+			ServiceStatus.State newState,
+			Throwable failedWith,
+			RunningService running
+		)
+		{
+			Snapshot next = next(owner, newState, failedWith, running);
+			if(! trySwitch(owner, next))
+			{
+				return currentStatus();
+			}
+
+			if(owner.status.getState() == ServiceStatus.State.STARTING)
+			{
+				if(newState == ServiceStatus.State.RUNNING)
+				{
+					watch(running);
+					startPendingDependents();
+				}
+				else if(newState == ServiceStatus.State.FAILED)
 				{
-					return Mono.just(currentStatus);
+					scheduleRestart(next);
 				}
+			}
+
+			return next.status;
+		}
+
+		/**
+		 * Watch {@link RunningService#onStop()} to find out if the service
+		 * stops without being asked to.
+		 */
+		private void watch(RunningService running)
+		{
+			running.onStop()
+				.subscribe(
+					null,
+					error -> stoppedUnexpectedly(running, error),
+					() -> stoppedUnexpectedly(running, null)
+				);
+		}
 
-				if(state == ServiceStatus.State.STOPPING)
+		/**
+		 * Handle that the given running service stopped on its own. A
+		 * service that stops with an error is failed and restarted if the
+		 * manager is supervising services.
+		 */
+		private void stoppedUnexpectedly(RunningService running, Throwable error)
+		{
+			while(true)
+			{
+				Snapshot current = state.get();
+				if(current.status.getState() != ServiceStatus.State.RUNNING || current.running != running)
 				{
-					return Mono.error(new RuntimeException("Unable to start service while it is being stopped"));
+					// Stopped via the manager or already handled
+					return;
 				}
 
-				if(state == ServiceStatus.State.STARTING)
+				if(error == null)
 				{
-					return currentChange;
+					Snapshot stopped = next(current, ServiceStatus.State.STOPPED, null, null);
+					if(trySwitch(current, stopped))
+					{
+						logger.info("Service {} stopped on its own", service);
+						return;
+					}
+
+					continue;
 				}
 
-				manager.maybeRecalculateDependencies();
+				Snapshot failed = next(current, ServiceStatus.State.FAILED, error, null);
+				if(trySwitch(current, failed))
+				{
+					logger.warn("Service {} crashed; {}", service, error.getMessage(), error);
+					restartAfterCrash(failed);
+					return;
+				}
+			}
+		}
 
-				switchState(ServiceStatus.State.STARTING, null);
+		/**
+		 * Stop everything that depends on this crashed service and then
+		 * schedule a restart. The stopped dependents are started again when
+		 * this service is running.
+		 */
+		private void restartAfterCrash(Snapshot failed)
+		{
+			if(! manager.restartPolicy.isEnabled())
+			{
+				return;
+			}
 
-				return currentChange = Flux.fromIterable(outgoingDependencies)
-					.flatMap(d -> d.start())
-					.reduce(ServiceStatus.State.RUNNING, (a, b) -> b.getState() == ServiceStatus.State.RUNNING ? a : ServiceStatus.State.FAILED)
-					.flatMap(status -> {
-						if(status == ServiceStatus.State.RUNNING)
-						{
-							// All dependencies could start, so let's start ourself
-							return service.start()
-								.map(rs -> {
-									this.runningService = rs;
+			MutableSet<Service> dependents = Sets.mutable.empty();
+			collectRunningDependents(dependents);
+			pendingDependents.accumulateAndGet(dependents.toImmutable(), ImmutableSet::newWithAll);
 
-									return switchState(ServiceStatus.State.RUNNING, null);
-								});
-						}
-						else
-						{
-							// One or more dependencies failed
-							return Mono.just(switchState(
-								ServiceStatus.State.FAILED,
-								new RuntimeException("Could not start due to not all dependencies starting")
-							));
-						}
-					})
-					.onErrorResume(t -> {
-						return Mono.just(switchState(ServiceStatus.State.FAILED, t));
-					})
-					.cache();
-			});
+			Flux.fromIterable(incomingDependencies)
+				.flatMap(d -> d.stop().onErrorResume(e -> Mono.empty()))
+				.then(Mono.fromRunnable(() -> scheduleRestart(failed)))
+				.subscribe();
 		}
 
-		public Mono<ServiceStatus> stop()
+		private void collectRunningDependents(MutableSet<Service> result)
 		{
-			return Mono.defer(() -> {
-				ServiceStatus.State state = currentStatus.getState();
-				if(state == ServiceStatus.State.STOPPED)
+			for(Service dependent : incomingDependencies)
+			{
+				if(dependent.currentStatus().getState() == ServiceStatus.State.RUNNING
+					&& result.add(dependent))
 				{
-					return Mono.just(currentStatus);
+					dependent.collectRunningDependents(result);
 				}
+			}
+		}
 
-				if(state == ServiceStatus.State.FAILED)
+		/**
+		 * Schedule a restart of this service according to the current
+		 * restart policy. The restart is skipped if the state of the service
+		 * changes before the delay has passed.
+		 */
+		private void scheduleRestart(Snapshot failed)
+		{
+			RestartPolicy policy = manager.restartPolicy;
+			Optional<Duration> backoff = policy.getBackoff(failed.consecutiveFailures);
+			if(! backoff.isPresent())
+			{
+				if(policy.isEnabled())
 				{
-					return Mono.just(switchState(ServiceStatus.State.STOPPED, null));
+					logger.warn("Service {} failed {} times in a row, not restarting", service, failed.consecutiveFailures);
 				}
 
-				if(state == ServiceStatus.State.STARTING)
+				return;
+			}
+
+			logger.info("Restarting {} in {} ms", service, backoff.get().toMillis());
+
+			Mono.delay(backoff.get())
+				.then(Mono.defer(() -> state.get() == failed ? start() : Mono.empty()))
+				.subscribe(
+					null,
+					e -> logger.warn("Could not restart {}; {}", service, e.getMessage(), e)
+				);
+		}
+
+		/**
+		 * Start the services that were stopped when this service crashed.
+		 */
+		private void startPendingDependents()
+		{
+			ImmutableSet<Service> dependents = pendingDependents.getAndSet(Sets.immutable.empty());
+			if(dependents.isEmpty())
+			{
+				return;
+			}
+
+			Flux.fromIterable(dependents)
+				.flatMap(d -> d.start())
+				.subscribe(
+					null,
+					e -> logger.warn("Could not start services depending on {}; {}", service, e.getMessage(), e)
+				);
+		}
+
+		public Mono<ServiceStatus> start()
+		{
+			return Mono.defer(() -> {
+				while(true)
 				{
-					return Mono.error(new RuntimeException("Service is currently being started, can't stop"));
+					Snapshot current = state.get();
+					switch(current.status.getState())
+					{
+						case RUNNING:
+							return Mono.just(current.status);
+						case STOPPING:
+							return Mono.error(new ServiceException("Unable to start service while it is being stopped"));
+						case STARTING:
+							return current.change;
+						default:
+							// STOPPED or FAILED can be started
+					}
+
+					Snapshot starting = next(current, ServiceStatus.State.STARTING, null, null);
+					starting.change = startTransition(starting);
+
+					if(trySwitch(current, starting))
+					{
+						return starting.change;
+					}
+
+					// Someone else changed the state, try again
 				}
+			});
+		}
+
+		private Mono<ServiceStatus> startTransition(Snapshot owner)
+		{
+			return Flux.fromIterable(outgoingDependencies)
+				.flatMap(d -> d.start())
+				.reduce(ServiceStatus.State.RUNNING, (a, b) -> b.getState() == ServiceStatus.State.RUNNING ? a : ServiceStatus.State.FAILED)
+				.flatMap(status -> {
+					if(status == ServiceStatus.State.RUNNING)
+					{
+						// All dependencies could start, so let's start ourself
+						return startService()
+							.map(rs -> complete(owner, ServiceStatus.State.RUNNING, null, rs));
+					}
+					else
+					{
+						// One or more dependencies failed
+						return Mono.just(complete(
+							owner,
+							ServiceStatus.State.FAILED,
+							new ServiceException("Could not start due to not all dependencies starting"),
+							null
+						));
+					}
+				})
+				.onErrorResume(t -> {
+					return Mono.just(complete(owner, ServiceStatus.State.FAILED, t, null));
+				})
+				.cache();
+		}
 
-				if(state == ServiceStatus.State.STOPPING)
+		/**
+		 * Invoke the start of the service on the start scheduler and keep
+		 * track of how long it takes.
+		 *
+		 * @return
+		 */
+		private Mono<RunningService> startService()
+		{
+			return Mono.defer(() -> {
+				long started = System.nanoTime();
+				return service.start()
+					.doOnSuccess(rs -> startDuration = System.nanoTime() - started);
+			}).subscribeOn(manager.startScheduler);
+		}
+
+		public Mono<ServiceStatus> stop()
+		{
+			return Mono.defer(() -> {
+				while(true)
 				{
-					return currentChange;
-				}
+					Snapshot current = state.get();
+					switch(current.status.getState())
+					{
+						case STOPPED:
+							return Mono.just(current.status);
+						case FAILED:
+							Snapshot stopped = next(current, ServiceStatus.State.STOPPED, null, null);
+							if(trySwitch(current, stopped))
+							{
+								return Mono.just(stopped.status);
+							}
 
-				manager.maybeRecalculateDependencies();
+							// Someone else changed the state, try again
+							continue;
+						case STARTING:
+							return Mono.error(new ServiceException("Service is currently being started, can't stop"));
+						case STOPPING:
+							return current.change;
+						default:
+							// RUNNING can be stopped
+					}
 
-				switchState(ServiceStatus.State.STOPPING, null);
+					Snapshot stopping = next(current, ServiceStatus.State.STOPPING, null, current.running);
+					stopping.change = stopTransition(stopping);
 
-				return currentChange = Flux.fromIterable(incomingDependencies)
-					.flatMap(d -> d.stop())
-					.reduce(ServiceStatus.State.STOPPED, (a, b) -> b.getState() == ServiceStatus.State.STOPPED ? a : ServiceStatus.State.RUNNING)
-					.flatMap(status -> {
-						if(status == ServiceStatus.State.STOPPED)
-						{
-							// Everything depending on this service has stopped
-							return runningService.stop()
-								.map(v -> {
-									return switchState(ServiceStatus.State.STOPPED, null);
-								});
-						}
-						else
-						{
-							// One or more things depending on us didn't stop - keep running
-							return Mono.just(currentStatus);
-						}
-					})
-					.onErrorResume(t -> {
-						return Mono.just(switchState(ServiceStatus.State.FAILED, t));
-					})
-					.cache();
+					if(trySwitch(current, stopping))
+					{
+						return stopping.change;
+					}
+
+					// Someone else changed the state, try again
+				}
 			});
 		}
+
+		private Mono<ServiceStatus> stopTransition(Snapshot owner)
+		{
+			return Flux.fromIterable(incomingDependencies)
+				.flatMap(d -> d.stop()
+					// A dependent that is starting keeps this service running
+					.onErrorResume(ServiceException.class, e -> Mono.just(d.currentStatus()))
+				)
+				.reduce(ServiceStatus.State.STOPPED, (a, b) -> b.getState() == ServiceStatus.State.STOPPED ? a : ServiceStatus.State.RUNNING)
+				.flatMap(status -> {
+					if(status == ServiceStatus.State.STOPPED)
+					{
+						// Everything depending on this service has stopped
+						return owner.running.stop()
+							.timeout(manager.stopTimeout)
+							.then(Mono.fromSupplier(() -> complete(owner, ServiceStatus.State.STOPPED, null, null)));
+					}
+					else
+					{
+						// One or more things depending on us didn't stop - keep running
+						return Mono.just(complete(owner, ServiceStatus.State.RUNNING, null, owner.running));
+					}
+				})
+				.onErrorResume(t -> {
+					return Mono.just(complete(owner, ServiceStatus.State.FAILED, t, null));
+				})
+				.cache();
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the state of a {@link Service}.
+	 */
+	private static class Snapshot
+	{
+		private final ServiceStatus status;
+		private final RunningService running;
+
+		/** Number of times the service has entered STARTING. */
+		private final int starts;
+		/** Number of times the service has failed. */
+		private final int failures;
+		/** Number of times the service has failed in a row. */
+		private final int consecutiveFailures;
+
+		/**
+		 * The transition in progress for STARTING and STOPPING. Assigned
+		 * before the snapshot is published and never changed afterwards.
+		 */
+		private Mono<ServiceStatus> change;
+
+		public Snapshot(
+			ServiceStatus status,
+			RunningService running,
+			int starts,
+			int failures,
+			int consecutiveFailures
+		)
+		{
+			this.status = status;
+			this.running = running;
+			this.starts = starts;
+			this.failures = failures;
+			this.consecutiveFailures = consecutiveFailures;
+		}
 	}
 
 	private static class ServiceStatusImpl
@@ -287,15 +1115,35 @@ public class ServiceManagerImpl
 		private final ServiceStatus.State state;
 		private final Throwable failedWith;
 
+		private final ServiceStatus.State previousState;
+		private final long timestamp;
+		private final long duration;
+
+		private final int restartCount;
+		private final int failureCount;
+		private final int consecutiveFailures;
+
 		public ServiceStatusImpl(
 			Service service,
 			ServiceStatus.State state,
-			Throwable failedWith
+			Throwable failedWith,
+			ServiceStatus.State previousState,
+			long timestamp,
+			long duration,
+			int restartCount,
+			int failureCount,
+			int consecutiveFailures
 		)
 		{
 			this.service = service;
 			this.state = state;
 			this.failedWith = failedWith;
+			this.previousState = previousState;
+			this.timestamp = timestamp;
+			this.duration = duration;
+			this.restartCount = restartCount;
+			this.failureCount = failureCount;
+			this.consecutiveFailures = consecutiveFailures;
 		}
 
 		@Override
@@ -313,7 +1161,52 @@ public class ServiceManagerImpl
 		@Override
 		public Optional<Throwable> getFailedWith()
 		{
-			return Optional.of(failedWith);
+			return Optional.ofNullable(failedWith);
+		}
+
+		@Override
+		public Optional<ServiceStatus.State> getPreviousState()
+		{
+			return Optional.ofNullable(previousState);
+		}
+
+		@Override
+		public long getTimestamp()
+		{
+			return timestamp;
+		}
+
+		@Override
+		public Duration getDuration()
+		{
+			return Duration.ofNanos(duration);
+		}
+
+		@Override
+		public int getRestartCount()
+		{
+			return restartCount;
+		}
+
+		@Override
+		public int getFailureCount()
+		{
+			return failureCount;
+		}
+
+		@Override
+		public int getConsecutiveFailures()
+		{
+			return consecutiveFailures;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "ServiceStatus{service=" + service.service
+				+ ", state=" + state
+				+ ", duration=" + getDuration()
+				+ "}";
 		}
 	}
 }
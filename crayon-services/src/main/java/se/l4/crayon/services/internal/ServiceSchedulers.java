@@ -0,0 +1,52 @@
+package se.l4.crayon.services.internal;
+
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import se.l4.crayon.module.VirtualThreads;
+
+/**
+ * Creation of the {@link Scheduler} that {@link se.l4.crayon.services.ManagedService}
+ * instances are started on.
+ */
+public class ServiceSchedulers
+{
+	private static final String NAME = "crayon-services";
+
+	private ServiceSchedulers()
+	{
+	}
+
+	/**
+	 * Create a scheduler backed by a bounded pool of daemon threads. The
+	 * number of threads limits how many blocking starts can run at the same
+	 * time.
+	 *
+	 * @param maxConcurrency
+	 * @return
+	 */
+	public static Scheduler boundedElastic(int maxConcurrency)
+	{
+		return Schedulers.newBoundedElastic(
+			maxConcurrency,
+			Integer.MAX_VALUE,
+			NAME,
+			60,
+			true
+		);
+	}
+
+	/**
+	 * Create a scheduler that runs every task on a new virtual thread. Falls
+	 * back to {@link #boundedElastic(int)} if virtual threads are not
+	 * supported by the JVM.
+	 *
+	 * @param maxConcurrency
+	 * @return
+	 */
+	public static Scheduler virtualThreads(int maxConcurrency)
+	{
+		return VirtualThreads.newExecutor()
+			.map(executor -> Schedulers.fromExecutorService(executor, NAME))
+			.orElseGet(() -> boundedElastic(maxConcurrency));
+	}
+}
@@ -0,0 +1,120 @@
+package se.l4.crayon.services;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.set.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.matcher.Matchers;
+
+import reactor.core.publisher.Mono;
+import se.l4.crayon.services.internal.LazyServiceStarter;
+import se.l4.crayon.services.internal.ServiceManagerImpl;
+
+/**
+ * Testing of {@link LazyServiceStarter}.
+ */
+public class LazyServiceStarterTest
+{
+	@Test
+	public void testOwnBindingStartsService()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+		manager.add(new ServiceB());
+
+		Injector injector = createInjector(manager);
+		injector.getInstance(ServiceB.class);
+
+		assertThat(manager.get(ServiceA.class).block().getState(), is(ServiceStatus.State.RUNNING));
+		assertThat(manager.get(ServiceB.class).block().getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	@Test
+	public void testDependencyStartsService()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+		manager.add(new ServiceB());
+
+		Injector injector = createInjector(manager);
+		injector.getInstance(ServiceAUser.class);
+
+		assertThat(manager.get(ServiceA.class).block().getState(), is(ServiceStatus.State.RUNNING));
+		assertThat(manager.get(ServiceB.class).block().getState(), is(ServiceStatus.State.STOPPED));
+	}
+
+	@Test
+	public void testInactiveDoesNotStart()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+
+		LazyServiceStarter starter = new LazyServiceStarter();
+		Guice.createInjector(new AbstractModule()
+		{
+			@Override
+			protected void configure()
+			{
+				bindListener(Matchers.any(), starter);
+			}
+		}).getInstance(ServiceAUser.class);
+
+		assertThat(manager.get(ServiceA.class).block().getState(), is(ServiceStatus.State.STOPPED));
+	}
+
+	private static Injector createInjector(ServiceManager manager)
+	{
+		LazyServiceStarter starter = new LazyServiceStarter();
+		starter.activate(manager);
+
+		return Guice.createInjector(new AbstractModule()
+		{
+			@Override
+			protected void configure()
+			{
+				bindListener(Matchers.any(), starter);
+			}
+		});
+	}
+
+	public static class ServiceA
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+	}
+
+	public static class ServiceB
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+
+		@Override
+		public ImmutableSet<Class<? extends ManagedService>> getDependencies()
+		{
+			return Sets.immutable.of(ServiceA.class);
+		}
+	}
+
+	public static class ServiceAUser
+	{
+		@Inject
+		public ServiceAUser(ServiceA service)
+		{
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package se.l4.crayon.services;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link RestartPolicy}.
+ */
+public class RestartPolicyTest
+{
+	@Test
+	public void testNone()
+	{
+		assertThat(RestartPolicy.none().getBackoff(1), is(Optional.empty()));
+	}
+
+	@Test
+	public void testExponential()
+	{
+		RestartPolicy policy = RestartPolicy.exponential(Duration.ofMillis(100), Duration.ofMillis(1000));
+
+		assertThat(policy.getBackoff(1), is(Optional.of(Duration.ofMillis(100))));
+		assertThat(policy.getBackoff(2), is(Optional.of(Duration.ofMillis(200))));
+		assertThat(policy.getBackoff(4), is(Optional.of(Duration.ofMillis(800))));
+		assertThat(policy.getBackoff(5), is(Optional.of(Duration.ofMillis(1000))));
+		assertThat(policy.getBackoff(100), is(Optional.of(Duration.ofMillis(1000))));
+	}
+
+	@Test
+	public void testJitter()
+	{
+		RestartPolicy policy = RestartPolicy.exponential(Duration.ofMillis(100), Duration.ofMillis(1000))
+			.withJitter(0.5);
+
+		for(int i=0; i<100; i++)
+		{
+			Duration backoff = policy.getBackoff(2).get();
+			assertThat(backoff.toMillis() >= 100 && backoff.toMillis() <= 200, is(true));
+		}
+	}
+
+	@Test
+	public void testMaxRestarts()
+	{
+		RestartPolicy policy = RestartPolicy.exponential(Duration.ofMillis(100), Duration.ofMillis(1000))
+			.withMaxRestarts(2);
+
+		assertThat(policy.getBackoff(2).isPresent(), is(true));
+		assertThat(policy.getBackoff(3).isPresent(), is(false));
+	}
+}
@@ -0,0 +1,84 @@
+package se.l4.crayon.services;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import se.l4.crayon.services.internal.ServiceHealthImpl;
+import se.l4.crayon.services.internal.ServiceManagerImpl;
+
+/**
+ * Tests for {@link ServiceHealthImpl}.
+ */
+public class ServiceHealthTest
+{
+	@Test
+	public void testReadyWhenRunning()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new WorkingService());
+
+		ServiceHealth health = new ServiceHealthImpl(manager);
+		assertThat(health.isReady(), is(false));
+		assertThat(health.isLive(), is(true));
+
+		manager.startAll().blockLast();
+		assertThat(health.isReady(), is(true));
+		assertThat(health.isLive(), is(true));
+
+		manager.stopAll().blockLast();
+		assertThat(health.isReady(), is(false));
+	}
+
+	@Test
+	public void testNotLiveWhenFailed()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new FailingService());
+		manager.startAll().blockLast();
+
+		ServiceHealth health = new ServiceHealthImpl(manager);
+		assertThat(health.isReady(), is(false));
+		assertThat(health.isLive(), is(false));
+	}
+
+	@Test
+	public void testLiveWhenFailedAndRestarting()
+	{
+		RestartPolicy policy = RestartPolicy.exponential(Duration.ofMinutes(1), Duration.ofMinutes(1))
+			.withMaxRestarts(1);
+
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.supervise(policy);
+		manager.add(new FailingService());
+		manager.startAll().blockLast();
+
+		ServiceHealth health = new ServiceHealthImpl(manager, policy);
+		assertThat(health.isReady(), is(false));
+		assertThat(health.isLive(), is(true));
+	}
+
+	private static class WorkingService
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+	}
+
+	private static class FailingService
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.error(new RuntimeException("Failed"));
+		}
+	}
+}
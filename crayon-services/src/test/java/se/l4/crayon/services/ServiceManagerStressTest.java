@@ -0,0 +1,189 @@
+package se.l4.crayon.services;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.collections.api.factory.Sets;
+import org.eclipse.collections.api.set.ImmutableSet;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import se.l4.crayon.services.internal.ServiceManagerImpl;
+
+/**
+ * Concurrent starting and stopping of services in
+ * {@link ServiceManagerImpl}.
+ */
+public class ServiceManagerStressTest
+{
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 2000;
+
+	@Test
+	public void testConcurrentStartAndStop()
+		throws Exception
+	{
+		CountingService base = new BaseService();
+		CountingService dependent = new DependentService();
+
+		ServiceManager manager = new ServiceManagerImpl(4, Schedulers.parallel());
+		manager.add(base);
+		manager.add(dependent);
+
+		Queue<ServiceStatus> events = new ConcurrentLinkedQueue<>();
+		manager.serviceStatus().subscribe(events::add);
+
+		Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+		CountDownLatch ready = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		List<Runnable> tasks = new ArrayList<>();
+		for(int t=0; t<THREADS; t++)
+		{
+			tasks.add(() -> {
+				try
+				{
+					ready.await();
+				}
+				catch(InterruptedException e)
+				{
+					return;
+				}
+
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for(int i=0; i<ITERATIONS; i++)
+				{
+					Class<? extends ManagedService> type = random.nextBoolean()
+						? BaseService.class
+						: DependentService.class;
+
+					Mono<ServiceStatus> op = random.nextBoolean()
+						? manager.start(type)
+						: manager.stop(type);
+
+					try
+					{
+						op.block();
+					}
+					catch(ServiceException e)
+					{
+						// Starting while stopping and the other way around is expected
+					}
+					catch(Throwable e)
+					{
+						unexpected.add(e);
+					}
+				}
+			});
+		}
+
+		for(Runnable task : tasks)
+		{
+			executor.submit(task);
+		}
+
+		ready.countDown();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(60, TimeUnit.SECONDS), is(true));
+
+		assertThat(unexpected.isEmpty(), is(true));
+
+		// Never more than a single start or stop at a time
+		assertThat(base.maxActive.get(), is(1));
+		assertThat(dependent.maxActive.get(), is(1));
+
+		// Stop everything and verify that the services agree
+		manager.stop(BaseService.class).block();
+
+		assertThat(manager.get(BaseService.class).block().getState(), is(ServiceStatus.State.STOPPED));
+		assertThat(manager.get(DependentService.class).block().getState(), is(ServiceStatus.State.STOPPED));
+
+		assertThat(base.starts.get(), is(base.stops.get()));
+		assertThat(dependent.starts.get(), is(dependent.stops.get()));
+
+		// Every event must be a valid transition from the previous one
+		for(ServiceStatus status : events)
+		{
+			ServiceStatus.State previous = status.getPreviousState().orElse(null);
+			assertThat(status + " from " + previous, isValid(previous, status.getState()), is(true));
+		}
+	}
+
+	private static boolean isValid(ServiceStatus.State from, ServiceStatus.State to)
+	{
+		switch(to)
+		{
+			case STARTING:
+				return from == ServiceStatus.State.STOPPED || from == ServiceStatus.State.FAILED;
+			case RUNNING:
+				return from == ServiceStatus.State.STARTING || from == ServiceStatus.State.STOPPING;
+			case STOPPING:
+				return from == ServiceStatus.State.RUNNING;
+			case STOPPED:
+				return from == ServiceStatus.State.STOPPING || from == ServiceStatus.State.FAILED;
+			case FAILED:
+				return from == ServiceStatus.State.STARTING || from == ServiceStatus.State.STOPPING;
+		}
+
+		return false;
+	}
+
+	private abstract static class CountingService
+		implements ManagedService
+	{
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicInteger maxActive = new AtomicInteger();
+
+		private final AtomicInteger starts = new AtomicInteger();
+		private final AtomicInteger stops = new AtomicInteger();
+
+		private void enter()
+		{
+			int current = active.incrementAndGet();
+			maxActive.accumulateAndGet(current, Math::max);
+		}
+
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.fromSupplier(() -> {
+				enter();
+				starts.incrementAndGet();
+				active.decrementAndGet();
+
+				return RunningService.stoppable(() -> {
+					enter();
+					stops.incrementAndGet();
+					active.decrementAndGet();
+				});
+			});
+		}
+	}
+
+	private static class BaseService
+		extends CountingService
+	{
+	}
+
+	private static class DependentService
+		extends CountingService
+	{
+		@Override
+		public ImmutableSet<Class<? extends ManagedService>> getDependencies()
+		{
+			return Sets.immutable.of(BaseService.class);
+		}
+	}
+}
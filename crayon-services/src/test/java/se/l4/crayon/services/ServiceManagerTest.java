@@ -1,13 +1,29 @@
 package se.l4.crayon.services;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.collections.api.factory.Sets;
 import org.eclipse.collections.api.set.ImmutableSet;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
 
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 import se.l4.crayon.services.internal.ServiceManagerImpl;
 
 /**
@@ -49,6 +65,408 @@ public class ServiceManagerTest
 		assertThat(manager.get(ServiceB.class).block().getState(), is(ServiceStatus.State.STOPPED));
 	}
 
+	@Test
+	public void testGraphWhenDependencyAddedLater()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceB());
+
+		assertThat(manager.getGraph().getDependencies(ServiceB.class).isEmpty(), is(true));
+
+		manager.add(new ServiceA());
+
+		ServiceGraph graph = manager.getGraph();
+		assertThat(graph.getServices().size(), is(2));
+		assertThat(graph.getDependencies(ServiceB.class).contains(ServiceA.class), is(true));
+		assertThat(graph.getDependents(ServiceA.class).contains(ServiceB.class), is(true));
+
+		manager.start(ServiceB.class).block();
+		assertThat(manager.get(ServiceA.class).block().getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	@Test
+	public void testStartWithMissingDependency()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceB());
+
+		manager.start(ServiceB.class).block();
+
+		assertThat(manager.get(ServiceB.class).block().getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	@Test
+	public void testDisposeReleasesScheduler()
+	{
+		Scheduler scheduler = Schedulers.newSingle("test");
+		ServiceManager manager = new ServiceManagerImpl(1, scheduler);
+		manager.add(new ServiceA());
+
+		manager.startAll().blockLast();
+		manager.stopAll().blockLast();
+		manager.dispose();
+
+		assertThat(scheduler.isDisposed(), is(true));
+	}
+
+	@Test
+	public void testRemove()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+		manager.add(new ServiceB());
+
+		ServiceGraph before = manager.getGraph();
+
+		assertThat(manager.remove(ServiceA.class), is(true));
+		assertThat(manager.remove(ServiceA.class), is(false));
+
+		ServiceGraph graph = manager.getGraph();
+		assertThat(graph.getServices().size(), is(1));
+		assertThat(graph.getDependencies(ServiceB.class).isEmpty(), is(true));
+
+		// Snapshots are not affected by changes
+		assertThat(before.getServices().size(), is(2));
+		assertThat(before.getDependencies(ServiceB.class).contains(ServiceA.class), is(true));
+	}
+
+	@Test
+	public void testBetterMatchAddedAndRemoved()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new StorageUser());
+		manager.add(new FileStorage());
+
+		assertThat(manager.getGraph().getDependencies(StorageUser.class).contains(FileStorage.class), is(true));
+
+		manager.add(new CachedStorage());
+		assertThat(manager.getGraph().getDependencies(StorageUser.class).contains(CachedStorage.class), is(true));
+		assertThat(manager.getGraph().getDependents(FileStorage.class).isEmpty(), is(true));
+
+		assertThat(manager.remove(CachedStorage.class), is(true));
+		assertThat(manager.getGraph().getDependencies(StorageUser.class).contains(FileStorage.class), is(true));
+
+		assertThat(manager.remove(FileStorage.class), is(true));
+		assertThat(manager.getGraph().getDependencies(StorageUser.class).isEmpty(), is(true));
+		assertThat(manager.get(FileStorage.class).block(), is(nullValue()));
+	}
+
+	@Test
+	public void testRemoveRunning()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+		manager.start(ServiceA.class).block();
+
+		assertThrows(ServiceException.class, () -> manager.remove(ServiceA.class));
+	}
+
+	@Test
+	public void testSupervisedRestartAfterCrash()
+		throws Exception
+	{
+		CrashingService crashing = new CrashingService();
+
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.supervise(RestartPolicy.exponential(Duration.ofMillis(10), Duration.ofMillis(100)));
+		manager.add(crashing);
+		manager.add(new CrashingDependent());
+
+		manager.start(CrashingDependent.class).block();
+
+		CountDownLatch restarted = new CountDownLatch(1);
+		manager.serviceStatus()
+			.filter(s -> s.getService() instanceof CrashingDependent)
+			.filter(s -> s.getState() == ServiceStatus.State.RUNNING && s.getRestartCount() == 1)
+			.subscribe(s -> restarted.countDown());
+
+		crashing.crash(new RuntimeException("Crashed"));
+
+		assertThat(restarted.await(5, TimeUnit.SECONDS), is(true));
+
+		ServiceStatus status = manager.get(CrashingService.class).block();
+		assertThat(status.getState(), is(ServiceStatus.State.RUNNING));
+		assertThat(status.getRestartCount(), is(1));
+		assertThat(status.getFailureCount(), is(1));
+	}
+
+	@Test
+	public void testCrashWithoutSupervision()
+	{
+		CrashingService crashing = new CrashingService();
+
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(crashing);
+		manager.start(CrashingService.class).block();
+
+		crashing.crash(new RuntimeException("Crashed"));
+
+		ServiceStatus status = manager.get(CrashingService.class).block();
+		assertThat(status.getState(), is(ServiceStatus.State.FAILED));
+		assertThat(status.getConsecutiveFailures(), is(1));
+	}
+
+	@Test
+	public void testLatestStatusReplayed()
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+		manager.start(ServiceA.class).block();
+
+		ServiceStatus status = manager.serviceStatus()
+			.blockFirst(Duration.ofSeconds(1));
+
+		assertThat(status.getService() instanceof ServiceA, is(true));
+		assertThat(status.getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	@Test
+	public void testSlowSubscriberDropsOldest()
+	{
+		ServiceManager manager = new ServiceManagerImpl(1, Schedulers.immediate(), Duration.ofSeconds(1), 2, BufferOverflowStrategy.DROP_OLDEST);
+		manager.add(new ServiceA());
+
+		// Subscriber that does not request anything until later
+		List<ServiceStatus> received = new CopyOnWriteArrayList<>();
+		BaseSubscriber<ServiceStatus> subscriber = new BaseSubscriber<ServiceStatus>()
+		{
+			@Override
+			protected void hookOnSubscribe(Subscription subscription)
+			{
+			}
+
+			@Override
+			protected void hookOnNext(ServiceStatus value)
+			{
+				received.add(value);
+			}
+		};
+
+		manager.serviceStatus().subscribe(subscriber);
+
+		for(int i=0; i<5; i++)
+		{
+			manager.start(ServiceA.class).block();
+			manager.stop(ServiceA.class).block();
+		}
+
+		subscriber.request(10);
+		subscriber.dispose();
+
+		// Only the two latest events are kept
+		assertThat(received.size(), is(2));
+		assertThat(received.get(0).getState(), is(ServiceStatus.State.STOPPING));
+		assertThat(received.get(1).getState(), is(ServiceStatus.State.STOPPED));
+	}
+
+	@Test
+	public void testStatusTiming()
+		throws Exception
+	{
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new ServiceA());
+
+		ServiceStatus stopped = manager.get(ServiceA.class).block();
+		ServiceStatus running = manager.start(ServiceA.class).block();
+
+		assertThat(running.getPreviousState(), is(Optional.of(ServiceStatus.State.STARTING)));
+		assertThat(running.getTimestamp() >= stopped.getTimestamp(), is(true));
+		assertThat(running.getDuration().isNegative(), is(false));
+		assertThat(running.getFailedWith(), is(Optional.empty()));
+
+		manager.stop(ServiceA.class).block();
+		running = manager.start(ServiceA.class).block();
+
+		assertThat(running.getRestartCount(), is(1));
+		assertThat(running.getFailureCount(), is(0));
+	}
+
+	@Test
+	public void testStopTimeout()
+		throws Exception
+	{
+		ServiceManager manager = new ServiceManagerImpl(1, Schedulers.immediate(), Duration.ofMillis(100));
+		manager.add(new HangingService());
+
+		manager.start(HangingService.class).block();
+		ServiceStatus status = manager.stop(HangingService.class).block(Duration.ofSeconds(10));
+
+		assertThat(status.getState(), is(ServiceStatus.State.FAILED));
+		assertThat(status.getFailedWith().get() instanceof TimeoutException, is(true));
+	}
+
+	@Test
+	public void testStartAllInParallel()
+		throws Exception
+	{
+		CountDownLatch latch = new CountDownLatch(2);
+
+		ServiceManager manager = new ServiceManagerImpl();
+		manager.add(new BlockingService(latch));
+		manager.add(new BlockingService2(latch));
+
+		manager.startAll().blockLast(Duration.ofSeconds(10));
+
+		assertThat(manager.get(BlockingService.class).block().getState(), is(ServiceStatus.State.RUNNING));
+		assertThat(manager.get(BlockingService2.class).block().getState(), is(ServiceStatus.State.RUNNING));
+	}
+
+	/**
+	 * Service that blocks in start until the given latch reaches zero.
+	 */
+	private static class BlockingService
+		implements ManagedService
+	{
+		private final CountDownLatch latch;
+
+		public BlockingService(CountDownLatch latch)
+		{
+			this.latch = latch;
+		}
+
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.fromSupplier(() -> {
+				latch.countDown();
+
+				try
+				{
+					if(! latch.await(5, TimeUnit.SECONDS))
+					{
+						throw new ServiceException("Timed out waiting for other service");
+					}
+				}
+				catch(InterruptedException e)
+				{
+					throw new ServiceException(e);
+				}
+
+				return RunningService.unstoppable();
+			});
+		}
+	}
+
+	private static class BlockingService2
+		extends BlockingService
+	{
+		public BlockingService2(CountDownLatch latch)
+		{
+			super(latch);
+		}
+	}
+
+	/**
+	 * Service that never completes its stop.
+	 */
+	private static class HangingService
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(new RunningService()
+			{
+				@Override
+				public Mono<Boolean> stop()
+				{
+					return Mono.never();
+				}
+
+				@Override
+				public Mono<Void> onStop()
+				{
+					return Mono.never();
+				}
+			});
+		}
+	}
+
+	private static class CrashingService
+		implements ManagedService
+	{
+		private volatile Sinks.One<Void> onStop;
+
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.fromSupplier(() -> {
+				Sinks.One<Void> stopped = Sinks.one();
+				onStop = stopped;
+
+				return new RunningService()
+				{
+					@Override
+					public Mono<Boolean> stop()
+					{
+						return Mono.fromSupplier(() -> {
+							stopped.tryEmitEmpty();
+							return true;
+						});
+					}
+
+					@Override
+					public Mono<Void> onStop()
+					{
+						return stopped.asMono();
+					}
+				};
+			});
+		}
+
+		public void crash(Throwable t)
+		{
+			onStop.tryEmitError(t);
+		}
+	}
+
+	private static class CrashingDependent
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+
+		@Override
+		public ImmutableSet<Class<? extends ManagedService>> getDependencies()
+		{
+			return Sets.immutable.of(CrashingService.class);
+		}
+	}
+
+	private static class FileStorage
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+	}
+
+	private static class CachedStorage
+		extends FileStorage
+	{
+	}
+
+	private static class StorageUser
+		implements ManagedService
+	{
+		@Override
+		public Mono<RunningService> start()
+		{
+			return Mono.just(RunningService.stoppable(() -> {}));
+		}
+
+		@Override
+		public ImmutableSet<Class<? extends ManagedService>> getDependencies()
+		{
+			return Sets.immutable.of(CachedStorage.class);
+		}
+	}
+
 	private static class ServiceA
 		implements ManagedService
 	{
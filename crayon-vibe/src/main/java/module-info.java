@@ -1,6 +1,9 @@
 module se.l4.crayon.vibe {
 	requires transitive se.l4.crayon.module;
 	requires transitive se.l4.vibe;
+	requires se.l4.crayon.services;
 
 	exports se.l4.crayon.vibe;
+
+	opens se.l4.crayon.vibe.internal to com.google.guice;
 }
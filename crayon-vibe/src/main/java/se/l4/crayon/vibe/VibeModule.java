@@ -1,14 +1,19 @@
 package se.l4.crayon.vibe;
 
+import com.google.inject.Injector;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 
 import se.l4.crayon.contributions.Contributions;
 import se.l4.crayon.module.CrayonModule;
+import se.l4.crayon.vibe.internal.ServiceMetrics;
 import se.l4.vibe.Vibe;
 
 /**
- * Module that activates support for health monitoring via {@link Vibe}.
+ * Module that activates support for health monitoring via {@link Vibe}. If
+ * {@link se.l4.crayon.services.ServiceManager services} are available timers
+ * and counters for every service are exported under {@code services} once
+ * {@link #exportServiceMetrics(Injector)} has been called.
  */
 public class VibeModule
 	extends CrayonModule
@@ -19,6 +24,18 @@ public class VibeModule
 		bindContributions(VibeBackendContribution.class);
 	}
 
+	/**
+	 * Start exporting metrics about the services of the given injector.
+	 * Called when the application starts, so that creating the injector
+	 * does not create the services.
+	 *
+	 * @param injector
+	 */
+	public static void exportServiceMetrics(Injector injector)
+	{
+		injector.getInstance(ServiceMetrics.class);
+	}
+
 	@Provides
 	@Singleton
 	public Vibe provideVibe(
@@ -0,0 +1,184 @@
+package se.l4.crayon.vibe.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import se.l4.crayon.services.ManagedService;
+import se.l4.crayon.services.ServiceHealth;
+import se.l4.crayon.services.ServiceManager;
+import se.l4.crayon.services.ServiceStatus;
+import se.l4.vibe.Vibe;
+import se.l4.vibe.probes.CountingProbe;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.timers.Stopwatch;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Exports metrics about services managed by a {@link ServiceManager}. For
+ * every service the following is exported under
+ * {@code services/<fully qualified class name>}:
+ *
+ * <ul>
+ *   <li>{@code starting} - timer for the time spent in {@code STARTING}</li>
+ *   <li>{@code stopping} - timer for the time spent in {@code STOPPING}</li>
+ *   <li>{@code restarts} - number of times the service has been restarted</li>
+ *   <li>{@code failures} - number of times the service has failed</li>
+ *   <li>{@code lastStartTime} - milliseconds the last start took</li>
+ *   <li>{@code lastStopTime} - milliseconds the last stop took</li>
+ * </ul>
+ *
+ * <p>
+ * The overall {@link ServiceHealth} is exported as {@code health/ready} and
+ * {@code health/live}.
+ */
+@Singleton
+public class ServiceMetrics
+{
+	private final Vibe vibe;
+	private final Map<ManagedService, Metrics> metrics;
+
+	@Inject
+	public ServiceMetrics(Vibe vibe)
+	{
+		this.vibe = vibe;
+
+		metrics = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Start listening to the given manager. Optional so that metrics are
+	 * only exported if services are in use.
+	 *
+	 * @param manager
+	 */
+	@Inject(optional = true)
+	public void setServiceManager(ServiceManager manager)
+	{
+		manager.serviceStatus()
+			.subscribe(this::update);
+	}
+
+	/**
+	 * Export the readiness and liveness of services.
+	 *
+	 * @param health
+	 */
+	@Inject(optional = true)
+	public void setServiceHealth(ServiceHealth health)
+	{
+		Probe<Boolean> ready = health::isReady;
+		Probe<Boolean> live = health::isLive;
+
+		vibe.export(ready).at("health", "ready").done();
+		vibe.export(live).at("health", "live").done();
+	}
+
+	private void update(ServiceStatus status)
+	{
+		Metrics m = metrics.computeIfAbsent(status.getService(), this::export);
+		m.update(status);
+	}
+
+	private Metrics export(ManagedService service)
+	{
+		String name = name(service);
+		Metrics m = new Metrics();
+
+		vibe.export(m.starting).at("services", name, "starting").done();
+		vibe.export(m.stopping).at("services", name, "stopping").done();
+		vibe.export(m.restarts).at("services", name, "restarts").done();
+		vibe.export(m.failures).at("services", name, "failures").done();
+		vibe.export(m.lastStartTime).at("services", name, "lastStartTime").done();
+		vibe.export(m.lastStopTime).at("services", name, "lastStopTime").done();
+
+		return m;
+	}
+
+	/**
+	 * Get the name used for the given service, the fully qualified name of
+	 * its class so that services with the same simple name do not collide.
+	 */
+	private static String name(ManagedService service)
+	{
+		return service.getClass().getName();
+	}
+
+	private static class Metrics
+	{
+		private final Timer starting;
+		private final Timer stopping;
+
+		private final CountingProbe restarts;
+		private final CountingProbe failures;
+
+		private final Probe<Long> lastStartTime;
+		private final Probe<Long> lastStopTime;
+
+		private volatile Stopwatch current;
+
+		private volatile long lastStart;
+		private volatile long lastStop;
+
+		public Metrics()
+		{
+			starting = Timer.builder()
+				.withResolution(TimeUnit.MILLISECONDS)
+				.build();
+
+			stopping = Timer.builder()
+				.withResolution(TimeUnit.MILLISECONDS)
+				.build();
+
+			restarts = new CountingProbe();
+			failures = new CountingProbe();
+
+			lastStartTime = () -> lastStart;
+			lastStopTime = () -> lastStop;
+		}
+
+		public void update(ServiceStatus status)
+		{
+			// Stop timing the previous state
+			Stopwatch stopwatch = current;
+			if(stopwatch != null)
+			{
+				stopwatch.close();
+				current = null;
+			}
+
+			ServiceStatus.State previous = status.getPreviousState().orElse(null);
+			long millis = status.getDuration().toMillis();
+			if(previous == ServiceStatus.State.STARTING)
+			{
+				lastStart = millis;
+			}
+			else if(previous == ServiceStatus.State.STOPPING)
+			{
+				lastStop = millis;
+			}
+
+			switch(status.getState())
+			{
+				case STARTING:
+					current = starting.start();
+					if(status.getRestartCount() > 0)
+					{
+						restarts.increase();
+					}
+					break;
+				case STOPPING:
+					current = stopping.start();
+					break;
+				case FAILED:
+					failures.increase();
+					break;
+				default:
+					// Nothing to track
+			}
+		}
+	}
+}